@@ -0,0 +1,34 @@
+-- MySQL Migration Script: pooled entity ids
+-- Entities now take their ids from the id_pools table (pooled-lo, blocks of 100)
+-- instead of AUTO_INCREMENT, so Hibernate can batch inserts.
+--
+-- Run this script ONCE against an existing database BEFORE starting the new version.
+-- A fresh database does not need it; Hibernate creates and seeds id_pools itself.
+
+USE bankingdb;
+
+CREATE TABLE IF NOT EXISTS id_pools (
+    pool_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_value BIGINT
+);
+
+-- Each pool continues after the highest id already in use
+INSERT INTO id_pools (pool_name, next_value)
+SELECT 'users', COALESCE(MAX(id), 0) + 1 FROM users
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_pools (pool_name, next_value)
+SELECT 'accounts', COALESCE(MAX(id), 0) + 1 FROM accounts
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_pools (pool_name, next_value)
+SELECT 'account_requests', COALESCE(MAX(id), 0) + 1 FROM account_requests
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO id_pools (pool_name, next_value)
+SELECT 'transactions', COALESCE(MAX(id), 0) + 1 FROM transactions
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+-- The AUTO_INCREMENT attribute on the id columns is left in place; it is simply no longer used.
+
+SELECT pool_name AS 'Pool', next_value AS 'Next Id' FROM id_pools;
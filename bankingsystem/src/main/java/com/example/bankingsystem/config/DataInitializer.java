@@ -4,12 +4,11 @@ import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.User;
 import com.example.bankingsystem.service.AccountService;
 import com.example.bankingsystem.service.UserService;
+import com.example.bankingsystem.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-
 @Component
 public class DataInitializer implements CommandLineRunner {
 
@@ -76,14 +75,14 @@ public class DataInitializer implements CommandLineRunner {
             // Create sample accounts
             Account account1 = new Account();
             account1.setAccountType(Account.AccountType.SAVINGS);
-            account1.setBalance(new BigDecimal("10000.00"));
+            account1.setBalance(Money.valueOf("10000.00"));
             account1.setUser(savedCustomer1);
             account1.setStatus(Account.AccountStatus.ACTIVE);
             accountService.createAccount(account1);
 
             Account account2 = new Account();
             account2.setAccountType(Account.AccountType.CURRENT);
-            account2.setBalance(new BigDecimal("25000.00"));
+            account2.setBalance(Money.valueOf("25000.00"));
             account2.setUser(savedCustomer2);
             account2.setStatus(Account.AccountStatus.ACTIVE);
             accountService.createAccount(account2);
@@ -0,0 +1,30 @@
+package com.example.bankingsystem.config;
+
+import com.example.bankingsystem.entity.IdGeneratorNode;
+import com.example.bankingsystem.repository.IdGeneratorNodeRepository;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+@Configuration
+public class IdGeneratorConfig {
+    
+    // Every application instance writing to the same database needs its own node id (0-1023). There is no
+    // default: an instance started without one fails rather than silently sharing a node id with another.
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(@Value("${banking.id.node-id}") long nodeId,
+                                                     IdGeneratorNodeRepository idGeneratorNodeRepository,
+                                                     PlatformTransactionManager transactionManager) {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(nodeId);
+        // A read-write transaction, so the checkpoint comes from the primary rather than a lagging replica
+        Optional<IdGeneratorNode> node = new TransactionTemplate(transactionManager)
+            .execute(status -> idGeneratorNodeRepository.findById(nodeId));
+        node.ifPresent(saved -> generator.advancePast(saved.getReservedUntil()));
+        return generator;
+    }
+}
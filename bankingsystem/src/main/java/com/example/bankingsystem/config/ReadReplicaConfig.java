@@ -0,0 +1,67 @@
+package com.example.bankingsystem.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only active when replicas are configured; otherwise Spring Boot sets up the single primary pool as before.
+// @Transactional(readOnly = true) methods read from the replicas, everything else runs on the primary.
+@Configuration
+@ConditionalOnProperty(prefix = "banking.datasource", name = "replica-urls")
+public class ReadReplicaConfig {
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+    
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${banking.datasource.read-your-writes-ms:5000}") long windowMillis) {
+        return new ReadYourWrites(windowMillis);
+    }
+    
+    // Replica pools use the primary's pool settings, pointed at another server
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                                      ReadYourWrites readYourWrites,
+                                                      @Value("${banking.datasource.replica-urls}") List<String> replicaUrls,
+                                                      @Value("${banking.datasource.replica-username:${spring.datasource.username}}") String username,
+                                                      @Value("${banking.datasource.replica-password:${spring.datasource.password}}") String password) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setPoolName("replica-" + replicas.size());
+            config.setReadOnly(true);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites);
+    }
+    
+    // The physical connection is only fetched at the first statement, by which time the transaction manager
+    // has marked the connection read-only or not, and that decides which side it comes from
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.bankingsystem.controller;
 
+import com.example.bankingsystem.dto.AccountActivityView;
+import com.example.bankingsystem.dto.AccountView;
 import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.User;
+import com.example.bankingsystem.service.AccountActivityService;
 import com.example.bankingsystem.service.AccountService;
+import com.example.bankingsystem.service.IdempotencyService;
+import com.example.bankingsystem.service.LedgerService;
 import com.example.bankingsystem.service.UserService;
+import com.example.bankingsystem.util.KeysetPage;
+import com.example.bankingsystem.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -25,6 +36,18 @@ public class AccountController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private AccountActivityService accountActivityService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping
     public ResponseEntity<?> createAccount(@Valid @RequestBody Account account) {
         try {
@@ -94,10 +117,24 @@ public class AccountController {
     }
     
     @GetMapping
-    public ResponseEntity<?> getAllAccounts() {
+    public ResponseEntity<?> getAllAccounts(@RequestParam(required = false) Account.AccountStatus status,
+                                          @RequestParam(required = false) Account.AccountType type,
+                                          @RequestParam(required = false) Long cursor,
+                                          @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+                                          @RequestParam(defaultValue = "false") boolean stream) {
         try {
-            List<Account> accounts = accountService.getAllAccounts();
-            return new ResponseEntity<>(accounts, HttpStatus.OK);
+            if (stream) {
+                StreamingResponseBody body = out -> KeysetPage.writeAll(out, objectMapper,
+                    beforeId -> accountService.listAccounts(status, type, beforeId, KeysetPage.MAX_SIZE),
+                    AccountView::getId);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+            }
+            
+            KeysetPage.checkSize(size);
+            List<AccountView> accounts = accountService.listAccounts(status, type, cursor, size + 1);
+            return new ResponseEntity<>(KeysetPage.of(accounts, size, AccountView::getId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -107,7 +144,7 @@ public class AccountController {
     public ResponseEntity<?> getAccountsByStatus(@PathVariable String status) {
         try {
             Account.AccountStatus accountStatus = Account.AccountStatus.valueOf(status.toUpperCase());
-            List<Account> accounts = accountService.getAccountsByStatus(accountStatus);
+            List<AccountView> accounts = accountService.getAccountsByStatus(accountStatus);
             return new ResponseEntity<>(accounts, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>("Invalid status: " + status, HttpStatus.BAD_REQUEST);
@@ -120,7 +157,7 @@ public class AccountController {
     public ResponseEntity<?> getAccountsByType(@PathVariable String type) {
         try {
             Account.AccountType accountType = Account.AccountType.valueOf(type.toUpperCase());
-            List<Account> accounts = accountService.getAccountsByType(accountType);
+            List<AccountView> accounts = accountService.getAccountsByType(accountType);
             return new ResponseEntity<>(accounts, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>("Invalid account type: " + type, HttpStatus.BAD_REQUEST);
@@ -142,11 +179,28 @@ public class AccountController {
         }
     }
     
+    // Spreads credits to a busy collection account over several slot rows; zero turns it off again
+    @PutMapping("/{accountId}/balance-slots/{balanceSlots}")
+    public ResponseEntity<?> updateBalanceSlots(@PathVariable Long accountId, @PathVariable int balanceSlots) {
+        try {
+            Account updatedAccount = accountService.updateBalanceSlots(accountId, balanceSlots);
+            return new ResponseEntity<>(updatedAccount, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
     @PostMapping("/{accountNumber}/deposit")
     public ResponseEntity<?> depositMoney(@PathVariable String accountNumber, 
-                                        @RequestParam BigDecimal amount) {
+                                        @RequestParam Money amount,
+                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash("account/deposit", accountNumber, amount);
+        return idempotencyService.execute(idempotencyKey, requestHash, () -> doDepositMoney(accountNumber, amount));
+    }
+    
+    private ResponseEntity<?> doDepositMoney(String accountNumber, Money amount) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             Account updatedAccount = accountService.depositMoney(accountNumber, amount);
@@ -158,9 +212,15 @@ public class AccountController {
     
     @PostMapping("/{accountNumber}/withdraw")
     public ResponseEntity<?> withdrawMoney(@PathVariable String accountNumber, 
-                                         @RequestParam BigDecimal amount) {
+                                         @RequestParam Money amount,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash("account/withdraw", accountNumber, amount);
+        return idempotencyService.execute(idempotencyKey, requestHash, () -> doWithdrawMoney(accountNumber, amount));
+    }
+    
+    private ResponseEntity<?> doWithdrawMoney(String accountNumber, Money amount) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             Account updatedAccount = accountService.withdrawMoney(accountNumber, amount);
@@ -173,13 +233,66 @@ public class AccountController {
     @GetMapping("/{accountNumber}/balance")
     public ResponseEntity<?> getAccountBalance(@PathVariable String accountNumber) {
         try {
-            BigDecimal balance = accountService.getAccountBalance(accountNumber);
+            Money balance = accountService.getAccountBalance(accountNumber);
             return new ResponseEntity<>(balance, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
     
+    // Compares the stored balance with the one rebuilt from the ledger; they can differ briefly under load
+    @GetMapping("/{accountNumber}/ledger-balance")
+    public ResponseEntity<?> getLedgerBalance(@PathVariable String accountNumber) {
+        try {
+            Optional<Account> account = accountService.getAccountByAccountNumber(accountNumber);
+            if (!account.isPresent()) {
+                return new ResponseEntity<>("Account not found", HttpStatus.NOT_FOUND);
+            }
+            Money ledgerBalance = ledgerService.getLedgerBalance(account.get().getId());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("accountNumber", accountNumber);
+            response.put("balance", account.get().getBalance());
+            response.put("ledgerBalance", ledgerBalance);
+            response.put("reconciled", ledgerBalance.equals(account.get().getBalance()));
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    // Transaction counts and last activity, read from the counters kept alongside every transaction
+    @GetMapping("/{accountNumber}/activity")
+    public ResponseEntity<?> getAccountActivity(@PathVariable String accountNumber) {
+        try {
+            Optional<AccountActivityView> activity = accountActivityService.getActivity(accountNumber);
+            Map<String, Object> response = new HashMap<>();
+            response.put("accountNumber", accountNumber);
+            response.put("incomingCount", activity.isPresent() ? activity.get().getIncomingCount() : 0L);
+            response.put("outgoingCount", activity.isPresent() ? activity.get().getOutgoingCount() : 0L);
+            response.put("totalCount", activity.isPresent() ? activity.get().getTotalCount() : 0L);
+            response.put("lastActivityAt", activity.isPresent() ? activity.get().getLastActivityAt() : null);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    // Recounts every account's activity counters from the transactions, spread over parallel workers
+    @PostMapping("/activity/rebuild")
+    public ResponseEntity<?> rebuildAccountActivity(@RequestParam(defaultValue = "4") int partitions) {
+        try {
+            long accounts = accountActivityService.rebuild(partitions);
+            Map<String, Object> response = new HashMap<>();
+            response.put("accounts", accounts);
+            response.put("partitions", partitions);
+            response.put("message", "Account activity rebuilt");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
     @DeleteMapping("/{accountId}")
     public ResponseEntity<?> deleteAccount(@PathVariable Long accountId) {
         try {
@@ -4,13 +4,19 @@ import com.example.bankingsystem.dto.AccountRequestDto;
 import com.example.bankingsystem.entity.AccountRequest;
 import com.example.bankingsystem.entity.User;
 import com.example.bankingsystem.service.AccountRequestService;
+import com.example.bankingsystem.service.PendingRequestCounter;
 import com.example.bankingsystem.service.UserService;
+import com.example.bankingsystem.util.KeysetPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,6 +33,12 @@ public class AccountRequestController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PendingRequestCounter pendingRequestCounter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping
     public ResponseEntity<?> createAccountRequest(@Valid @RequestBody AccountRequestDto requestDto) {
         try {
@@ -88,10 +100,28 @@ public class AccountRequestController {
     }
     
     @GetMapping
-    public ResponseEntity<?> getAllAccountRequests() {
+    public ResponseEntity<?> getAllAccountRequests(
+            @RequestParam(required = false) AccountRequest.RequestStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean stream) {
         try {
-            List<AccountRequest> requests = accountRequestService.getAllAccountRequests();
-            return new ResponseEntity<>(requests, HttpStatus.OK);
+            if (stream) {
+                StreamingResponseBody body = out -> KeysetPage.writeAll(out, objectMapper,
+                    beforeId -> accountRequestService.listAccountRequests(
+                        status, startDate, endDate, beforeId, KeysetPage.MAX_SIZE),
+                    AccountRequest::getId);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+            }
+            
+            KeysetPage.checkSize(size);
+            List<AccountRequest> requests = accountRequestService.listAccountRequests(
+                status, startDate, endDate, cursor, size + 1);
+            return new ResponseEntity<>(KeysetPage.of(requests, size, AccountRequest::getId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -120,6 +150,39 @@ public class AccountRequestController {
         }
     }
     
+    // Assigns the next pending requests to the staff member; no one else sees or processes them until the claim
+    // is released, the request is processed, or the lease runs out
+    @PostMapping("/claim")
+    public ResponseEntity<?> claimPendingRequests(@RequestParam Long staffId,
+                                                @RequestParam(defaultValue = "5") int count) {
+        try {
+            List<AccountRequest> requests = accountRequestService.claimPendingRequests(staffId, count);
+            return new ResponseEntity<>(requests, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    @GetMapping("/claimed")
+    public ResponseEntity<?> getClaimedRequests(@RequestParam Long staffId) {
+        try {
+            List<AccountRequest> requests = accountRequestService.getClaimedRequests(staffId);
+            return new ResponseEntity<>(requests, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    @PostMapping("/{requestId}/release")
+    public ResponseEntity<?> releaseClaim(@PathVariable Long requestId, @RequestParam Long staffId) {
+        try {
+            AccountRequest request = accountRequestService.releaseClaim(requestId, staffId);
+            return new ResponseEntity<>(request, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
     @PostMapping("/{requestId}/approve")
     public ResponseEntity<?> approveAccountRequest(@PathVariable Long requestId,
                                                  @RequestParam Long staffId,
@@ -209,6 +272,13 @@ public class AccountRequestController {
         }
     }
     
+    // Sends a "pending" event with the current count, then another each time it changes; replaces polling
+    // /pending-count from the staff dashboard
+    @GetMapping(value = "/pending-count/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPendingRequestCount() {
+        return pendingRequestCounter.subscribe();
+    }
+    
     @GetMapping("/staff/{staffId}/processed")
     public ResponseEntity<?> getRequestsProcessedByStaff(
             @PathVariable Long staffId,
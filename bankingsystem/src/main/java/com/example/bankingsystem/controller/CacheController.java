@@ -0,0 +1,41 @@
+package com.example.bankingsystem.controller;
+
+import com.example.bankingsystem.service.LookupCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/caches")
+@CrossOrigin(origins = "*")
+public class CacheController {
+    
+    @Autowired
+    private LookupCache lookupCache;
+    
+    @GetMapping
+    public ResponseEntity<?> getCacheStats() {
+        try {
+            return new ResponseEntity<>(lookupCache.stats(), HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Only this node's entries are dropped; other nodes catch up when theirs expire
+    @DeleteMapping
+    public ResponseEntity<?> clearCaches() {
+        try {
+            lookupCache.clear();
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Lookup caches cleared");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
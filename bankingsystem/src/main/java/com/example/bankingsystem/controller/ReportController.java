@@ -0,0 +1,82 @@
+package com.example.bankingsystem.controller;
+
+import com.example.bankingsystem.dto.VolumeBucket;
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.service.TransactionRollupService;
+import com.example.bankingsystem.util.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+    
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+    
+    // Transaction count and amount per hour or day, type and status, read from the rollup buckets
+    @GetMapping("/volume")
+    public ResponseEntity<?> getVolume(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) Transaction.TransactionType type,
+            @RequestParam(required = false) Transaction.TransactionStatus status) {
+        TransactionRollupService.Granularity bucketSize;
+        try {
+            bucketSize = TransactionRollupService.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>("Invalid granularity: " + granularity, HttpStatus.BAD_REQUEST);
+        }
+        if (!startDate.isBefore(endDate)) {
+            return new ResponseEntity<>("Start date must be before end date", HttpStatus.BAD_REQUEST);
+        }
+        
+        try {
+            List<VolumeBucket> buckets = transactionRollupService.getVolume(startDate, endDate, bucketSize, type, status);
+            long totalCount = 0;
+            Money totalAmount = Money.ZERO;
+            for (VolumeBucket bucket : buckets) {
+                totalCount += bucket.getTransactionCount();
+                totalAmount = totalAmount.plus(bucket.getTotalAmount());
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("granularity", bucketSize);
+            response.put("buckets", buckets);
+            response.put("totalCount", totalCount);
+            response.put("totalAmount", totalAmount);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    // Recounts the buckets of every day touching the range, e.g. after deploying rollups on an existing database
+    @PostMapping("/volume/backfill")
+    public ResponseEntity<?> backfillVolume(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        if (!startDate.isBefore(endDate)) {
+            return new ResponseEntity<>("Start date must be before end date", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            int buckets = transactionRollupService.backfill(startDate, endDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("buckets", buckets);
+            response.put("message", "Volume rollups rebuilt");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
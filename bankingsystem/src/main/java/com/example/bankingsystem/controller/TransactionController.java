@@ -1,21 +1,39 @@
 package com.example.bankingsystem.controller;
 
+import com.example.bankingsystem.dto.BatchTransferResultDto;
+import com.example.bankingsystem.dto.TransactionView;
+import com.example.bankingsystem.dto.TransferRequestDto;
 import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.exception.QueueFullException;
+import com.example.bankingsystem.service.AsyncTransferService;
+import com.example.bankingsystem.service.BatchTransferService;
+import com.example.bankingsystem.service.IdempotencyService;
+import com.example.bankingsystem.service.TransactionExportService;
 import com.example.bankingsystem.service.TransactionService;
 import com.example.bankingsystem.service.PinService;
 import com.example.bankingsystem.service.UserService;
+import com.example.bankingsystem.util.HistoryCursor;
+import com.example.bankingsystem.util.KeysetPage;
+import com.example.bankingsystem.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -23,6 +41,8 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class TransactionController {
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+    
     @Autowired
     private TransactionService transactionService;
     
@@ -32,14 +52,39 @@ public class TransactionController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private BatchTransferService batchTransferService;
+    
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private TransactionExportService transactionExportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping("/transfer")
     public ResponseEntity<?> transferMoney(@RequestParam String fromAccountNumber,
                                          @RequestParam String toIdentifier,
-                                         @RequestParam BigDecimal amount,
+                                         @RequestParam Money amount,
                                          @RequestParam(required = false) String description,
-                                         @RequestParam(defaultValue = "false") boolean isPhoneNumber) {
+                                         @RequestParam(defaultValue = "false") boolean isPhoneNumber,
+                                         @RequestParam(defaultValue = "false") boolean async,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash(
+            "transfer", fromAccountNumber, toIdentifier, amount, description, isPhoneNumber, async);
+        return idempotencyService.execute(idempotencyKey, requestHash, () ->
+            doTransferMoney(fromAccountNumber, toIdentifier, amount, description, isPhoneNumber, async));
+    }
+    
+    private ResponseEntity<?> doTransferMoney(String fromAccountNumber, String toIdentifier, Money amount,
+                                              String description, boolean isPhoneNumber, boolean async) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             
@@ -47,9 +92,17 @@ public class TransactionController {
                 description = "Money transfer";
             }
             
+            if (async) {
+                Transaction pending = asyncTransferService.submit(
+                    fromAccountNumber, toIdentifier, amount, description, isPhoneNumber);
+                return acceptTransfer(pending);
+            }
+            
             Transaction transaction = transactionService.transferMoney(
                 fromAccountNumber, toIdentifier, amount, description, isPhoneNumber);
             return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+        } catch (QueueFullException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -58,12 +111,22 @@ public class TransactionController {
     @PostMapping("/transfer/by-phone")
     public ResponseEntity<?> transferMoneyByPhone(@RequestParam String fromAccountNumber,
                                                 @RequestParam String toPhoneNumber,
-                                                @RequestParam BigDecimal amount,
+                                                @RequestParam Money amount,
                                                 @RequestParam(required = false) String description,
                                                 @RequestParam Long userId,
-                                                @RequestParam String pin) {
+                                                @RequestParam String pin,
+                                                @RequestParam(defaultValue = "false") boolean async,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash(
+            "transfer/by-phone", fromAccountNumber, toPhoneNumber, amount, description, userId, async);
+        return idempotencyService.execute(idempotencyKey, requestHash, () ->
+            doTransferMoneyByPhone(fromAccountNumber, toPhoneNumber, amount, description, userId, pin, async));
+    }
+    
+    private ResponseEntity<?> doTransferMoneyByPhone(String fromAccountNumber, String toPhoneNumber, Money amount,
+                                                     String description, Long userId, String pin, boolean async) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             
@@ -76,9 +139,17 @@ public class TransactionController {
                 description = "Money transfer via phone number";
             }
             
+            if (async) {
+                Transaction pending = asyncTransferService.submit(
+                    fromAccountNumber, toPhoneNumber, amount, description, true);
+                return acceptTransfer(pending);
+            }
+            
             Transaction transaction = transactionService.transferMoney(
                 fromAccountNumber, toPhoneNumber, amount, description, true);
             return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+        } catch (QueueFullException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -87,12 +158,22 @@ public class TransactionController {
     @PostMapping("/transfer/by-account")
     public ResponseEntity<?> transferMoneyByAccount(@RequestParam String fromAccountNumber,
                                                   @RequestParam String toAccountNumber,
-                                                  @RequestParam BigDecimal amount,
+                                                  @RequestParam Money amount,
                                                   @RequestParam(required = false) String description,
                                                   @RequestParam Long userId,
-                                                  @RequestParam String pin) {
+                                                  @RequestParam String pin,
+                                                  @RequestParam(defaultValue = "false") boolean async,
+                                                  @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash(
+            "transfer/by-account", fromAccountNumber, toAccountNumber, amount, description, userId, async);
+        return idempotencyService.execute(idempotencyKey, requestHash, () ->
+            doTransferMoneyByAccount(fromAccountNumber, toAccountNumber, amount, description, userId, pin, async));
+    }
+    
+    private ResponseEntity<?> doTransferMoneyByAccount(String fromAccountNumber, String toAccountNumber, Money amount,
+                                                       String description, Long userId, String pin, boolean async) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             
@@ -105,9 +186,38 @@ public class TransactionController {
                 description = "Money transfer via account number";
             }
             
+            if (async) {
+                Transaction pending = asyncTransferService.submit(
+                    fromAccountNumber, toAccountNumber, amount, description, false);
+                return acceptTransfer(pending);
+            }
+            
             Transaction transaction = transactionService.transferMoney(
                 fromAccountNumber, toAccountNumber, amount, description, false);
             return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+        } catch (QueueFullException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchTransfer(@RequestBody List<TransferRequestDto> transfers) {
+        try {
+            if (transfers == null || transfers.isEmpty()) {
+                return new ResponseEntity<>("Batch must contain at least one transfer", HttpStatus.BAD_REQUEST);
+            }
+            
+            List<BatchTransferResultDto> results = batchTransferService.transferAll(transfers);
+            long succeeded = results.stream().filter(BatchTransferResultDto::isSuccess).count();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("total", results.size());
+            response.put("succeeded", succeeded);
+            response.put("failed", results.size() - succeeded);
+            response.put("results", results);
+            return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -115,10 +225,17 @@ public class TransactionController {
     
     @PostMapping("/deposit")
     public ResponseEntity<?> createDeposit(@RequestParam String accountNumber,
-                                         @RequestParam BigDecimal amount,
-                                         @RequestParam(required = false) String description) {
+                                         @RequestParam Money amount,
+                                         @RequestParam(required = false) String description,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash("deposit", accountNumber, amount, description);
+        return idempotencyService.execute(idempotencyKey, requestHash, () ->
+            doCreateDeposit(accountNumber, amount, description));
+    }
+    
+    private ResponseEntity<?> doCreateDeposit(String accountNumber, Money amount, String description) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             
@@ -135,10 +252,17 @@ public class TransactionController {
     
     @PostMapping("/withdraw")
     public ResponseEntity<?> createWithdrawal(@RequestParam String accountNumber,
-                                            @RequestParam BigDecimal amount,
-                                            @RequestParam(required = false) String description) {
+                                            @RequestParam Money amount,
+                                            @RequestParam(required = false) String description,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String requestHash = IdempotencyService.requestHash("withdraw", accountNumber, amount, description);
+        return idempotencyService.execute(idempotencyKey, requestHash, () ->
+            doCreateWithdrawal(accountNumber, amount, description));
+    }
+    
+    private ResponseEntity<?> doCreateWithdrawal(String accountNumber, Money amount, String description) {
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 return new ResponseEntity<>("Amount must be positive", HttpStatus.BAD_REQUEST);
             }
             
@@ -181,17 +305,23 @@ public class TransactionController {
         }
     }
     
+    // Sends one "status" event once the transfer is no longer PENDING, then closes the stream
+    @GetMapping(value = "/transaction-id/{transactionId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactionStatus(@PathVariable String transactionId) {
+        return asyncTransferService.subscribe(transactionId);
+    }
+    
     @GetMapping("/history/account/{accountNumber}")
     public ResponseEntity<?> getTransactionHistory(@PathVariable String accountNumber,
                                                  @RequestParam(defaultValue = "0") int page,
                                                  @RequestParam(defaultValue = "20") int size) {
         try {
             if (size <= 0) {
-                List<Transaction> transactions = transactionService.getTransactionHistory(accountNumber);
+                List<TransactionView> transactions = transactionService.getTransactionHistory(accountNumber);
                 return new ResponseEntity<>(transactions, HttpStatus.OK);
             } else {
                 Pageable pageable = PageRequest.of(page, size);
-                Page<Transaction> transactions = transactionService.getTransactionHistory(accountNumber, pageable);
+                Page<TransactionView> transactions = transactionService.getTransactionHistory(accountNumber, pageable);
                 return new ResponseEntity<>(transactions, HttpStatus.OK);
             }
         } catch (Exception e) {
@@ -199,10 +329,40 @@ public class TransactionController {
         }
     }
     
+    // Cursor-paged history: pass the returned nextCursor to get the following page, until it comes back null
+    @GetMapping("/history/account/{accountNumber}/cursor")
+    public ResponseEntity<?> getTransactionHistoryPage(@PathVariable String accountNumber,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        try {
+            if (size <= 0 || size > MAX_HISTORY_PAGE_SIZE) {
+                return new ResponseEntity<>("Size must be between 1 and " + MAX_HISTORY_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+            }
+            HistoryCursor after = cursor == null || cursor.isEmpty() ? null : HistoryCursor.decode(cursor);
+            
+            // One extra row tells whether another page follows without counting
+            List<TransactionView> transactions = transactionService.getTransactionHistory(accountNumber, after, size + 1);
+            String nextCursor = null;
+            if (transactions.size() > size) {
+                transactions = transactions.subList(0, size);
+                TransactionView last = transactions.get(size - 1);
+                nextCursor = new HistoryCursor(last.getTransactionDate(), last.getId()).encode();
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", transactions);
+            response.put("size", transactions.size());
+            response.put("nextCursor", nextCursor);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+    
     @GetMapping("/history/phone/{phoneNumber}")
     public ResponseEntity<?> getTransactionHistoryByPhoneNumber(@PathVariable String phoneNumber) {
         try {
-            List<Transaction> transactions = transactionService.getTransactionHistoryByPhoneNumber(phoneNumber);
+            List<TransactionView> transactions = transactionService.getTransactionHistoryByPhoneNumber(phoneNumber);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -215,7 +375,7 @@ public class TransactionController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         try {
-            List<Transaction> transactions = transactionService.getTransactionHistoryByDateRange(
+            List<TransactionView> transactions = transactionService.getTransactionHistoryByDateRange(
                 accountNumber, startDate, endDate);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (Exception e) {
@@ -223,16 +383,65 @@ public class TransactionController {
         }
     }
     
+    // Newest first, at most KeysetPage.MAX_SIZE per page; stream=true writes every match as NDJSON instead
     @GetMapping
-    public ResponseEntity<?> getAllTransactions() {
+    public ResponseEntity<?> getAllTransactions(
+            @RequestParam(required = false) Transaction.TransactionStatus status,
+            @RequestParam(required = false) Transaction.TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean stream) {
         try {
-            List<Transaction> transactions = transactionService.getAllTransactions();
-            return new ResponseEntity<>(transactions, HttpStatus.OK);
+            if (stream) {
+                StreamingResponseBody body = out -> KeysetPage.writeAll(out, objectMapper,
+                    beforeId -> transactionService.listTransactions(
+                        status, type, startDate, endDate, beforeId, KeysetPage.MAX_SIZE),
+                    TransactionView::getId);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+            }
+            
+            KeysetPage.checkSize(size);
+            List<TransactionView> transactions = transactionService.listTransactions(
+                status, type, startDate, endDate, cursor, size + 1);
+            return new ResponseEntity<>(KeysetPage.of(transactions, size, TransactionView::getId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
     
+    // Staff export of transactions between two dates, optionally for one account, as CSV or NDJSON
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String accountNumber,
+            @RequestParam(defaultValue = "csv") String format) {
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>("Invalid format: " + format, HttpStatus.BAD_REQUEST);
+        }
+        if (endDate.isBefore(startDate)) {
+            return new ResponseEntity<>("End date must not be before start date", HttpStatus.BAD_REQUEST);
+        }
+        
+        StreamingResponseBody body = out ->
+            transactionExportService.export(accountNumber, startDate, endDate, exportFormat, out);
+        String extension = exportFormat == TransactionExportService.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = exportFormat == TransactionExportService.Format.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + extension + "\"")
+            .body(body);
+    }
+    
     @GetMapping("/status/{status}")
     public ResponseEntity<?> getTransactionsByStatus(@PathVariable String status) {
         try {
@@ -280,4 +489,13 @@ public class TransactionController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    private ResponseEntity<?> acceptTransfer(Transaction transaction) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("transactionId", transaction.getTransactionId());
+        response.put("status", transaction.getStatus());
+        response.put("statusUrl", "/api/transactions/transaction-id/" + transaction.getTransactionId());
+        response.put("eventsUrl", "/api/transactions/transaction-id/" + transaction.getTransactionId() + "/events");
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
 }
@@ -1,12 +1,19 @@
 package com.example.bankingsystem.controller;
 
+import com.example.bankingsystem.dto.UserView;
 import com.example.bankingsystem.entity.User;
+import com.example.bankingsystem.service.UserIdentifierFilter;
+import com.example.bankingsystem.service.UserSearchService;
 import com.example.bankingsystem.service.UserService;
+import com.example.bankingsystem.util.KeysetPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +26,15 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private UserSearchService userSearchService;
+    
+    @Autowired
+    private UserIdentifierFilter userIdentifierFilter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody User user) {
         try {
@@ -98,10 +114,22 @@ public class UserController {
     }
     
     @GetMapping
-    public ResponseEntity<?> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) User.UserRole role,
+                                       @RequestParam(required = false) Long cursor,
+                                       @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_SIZE) int size,
+                                       @RequestParam(defaultValue = "false") boolean stream) {
         try {
-            List<User> users = userService.getAllUsers();
-            return new ResponseEntity<>(users, HttpStatus.OK);
+            if (stream) {
+                StreamingResponseBody body = out -> KeysetPage.writeAll(out, objectMapper,
+                    beforeId -> userService.listUsers(role, beforeId, KeysetPage.MAX_SIZE), UserView::getId);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+            }
+            
+            KeysetPage.checkSize(size);
+            List<UserView> users = userService.listUsers(role, cursor, size + 1);
+            return new ResponseEntity<>(KeysetPage.of(users, size, UserView::getId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
@@ -111,7 +139,7 @@ public class UserController {
     public ResponseEntity<?> getUsersByRole(@PathVariable String role) {
         try {
             User.UserRole userRole = User.UserRole.valueOf(role.toUpperCase());
-            List<User> users = userService.getUsersByRole(userRole);
+            List<UserView> users = userService.getUsersByRole(userRole);
             return new ResponseEntity<>(users, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>("Invalid role: " + role, HttpStatus.BAD_REQUEST);
@@ -123,7 +151,7 @@ public class UserController {
     @GetMapping("/staff")
     public ResponseEntity<?> getAllStaff() {
         try {
-            List<User> staff = userService.getAllStaff();
+            List<UserView> staff = userService.getAllStaff();
             return new ResponseEntity<>(staff, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -151,15 +179,26 @@ public class UserController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<?> searchUsersByName(@RequestParam String name) {
+    public ResponseEntity<?> searchUsers(@RequestParam String name,
+                                         @RequestParam(defaultValue = "20") int limit) {
         try {
-            List<User> users = userService.searchUsersByName(name);
+            List<UserView> users = userSearchService.search(name, limit);
             return new ResponseEntity<>(users, HttpStatus.OK);
         } catch (Exception e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
     
+    @GetMapping("/search/stats")
+    public ResponseEntity<?> getSearchIndexStats() {
+        return new ResponseEntity<>(userSearchService.stats(), HttpStatus.OK);
+    }
+    
+    @GetMapping("/exists/stats")
+    public ResponseEntity<?> getExistsFilterStats() {
+        return new ResponseEntity<>(userIdentifierFilter.stats(), HttpStatus.OK);
+    }
+    
     @GetMapping("/exists/email/{email}")
     public ResponseEntity<?> checkEmailExists(@PathVariable String email) {
         try {
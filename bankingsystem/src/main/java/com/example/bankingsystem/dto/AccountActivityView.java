@@ -0,0 +1,17 @@
+package com.example.bankingsystem.dto;
+
+import java.time.LocalDateTime;
+
+// An account's activity counters, summed over its slot rows
+public interface AccountActivityView {
+    
+    Long getAccountId();
+    
+    Long getIncomingCount();
+    
+    Long getOutgoingCount();
+    
+    Long getTotalCount();
+    
+    LocalDateTime getLastActivityAt();
+}
@@ -0,0 +1,30 @@
+package com.example.bankingsystem.dto;
+
+import com.example.bankingsystem.entity.Account;
+import com.example.bankingsystem.util.Money;
+
+import java.time.LocalDateTime;
+
+// Read-only row for account listings; the balance already includes any balance slots
+public interface AccountView {
+    
+    Long getId();
+    
+    String getAccountNumber();
+    
+    Account.AccountType getAccountType();
+    
+    Money getBalance();
+    
+    Account.AccountStatus getStatus();
+    
+    LocalDateTime getCreatedAt();
+    
+    Long getUserId();
+    
+    String getUserFirstName();
+    
+    String getUserLastName();
+    
+    String getUserPhoneNumber();
+}
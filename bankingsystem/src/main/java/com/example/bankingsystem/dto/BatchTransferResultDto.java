@@ -0,0 +1,63 @@
+package com.example.bankingsystem.dto;
+
+public class BatchTransferResultDto {
+    
+    private int index;
+    
+    private boolean success;
+    
+    private String transactionId;
+    
+    private String error;
+    
+    // Constructors
+    public BatchTransferResultDto() {}
+    
+    public BatchTransferResultDto(int index, boolean success, String transactionId, String error) {
+        this.index = index;
+        this.success = success;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+    
+    public static BatchTransferResultDto succeeded(int index, String transactionId) {
+        return new BatchTransferResultDto(index, true, transactionId, null);
+    }
+    
+    public static BatchTransferResultDto failed(int index, String error) {
+        return new BatchTransferResultDto(index, false, null, error);
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    public String getTransactionId() {
+        return transactionId;
+    }
+    
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.bankingsystem.dto;
+
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.util.Money;
+
+import java.time.LocalDateTime;
+
+// Read-only row for history listings: the transaction's own columns plus the two account numbers,
+// selected in one query instead of loading both accounts per transaction
+public interface TransactionView {
+    
+    Long getId();
+    
+    String getTransactionId();
+    
+    Transaction.TransactionType getTransactionType();
+    
+    Money getAmount();
+    
+    String getDescription();
+    
+    Transaction.TransactionStatus getStatus();
+    
+    LocalDateTime getTransactionDate();
+    
+    String getFromAccountNumber();
+    
+    String getToAccountNumber();
+    
+    String getRecipientPhone();
+    
+    String getRecipientAccountNumber();
+}
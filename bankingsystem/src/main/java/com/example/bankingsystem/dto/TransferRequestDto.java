@@ -1,7 +1,7 @@
 package com.example.bankingsystem.dto;
 
+import com.example.bankingsystem.util.Money;
 import jakarta.validation.constraints.*;
-import java.math.BigDecimal;
 
 public class TransferRequestDto {
     
@@ -11,9 +11,8 @@ public class TransferRequestDto {
     @NotBlank(message = "To identifier is required")
     private String toIdentifier;
     
-    @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
     @NotNull(message = "Amount is required")
-    private BigDecimal amount;
+    private Money amount;
     
     private String description;
     
@@ -23,7 +22,7 @@ public class TransferRequestDto {
     public TransferRequestDto() {}
     
     public TransferRequestDto(String fromAccountNumber, String toIdentifier, 
-                            BigDecimal amount, String description, boolean isPhoneNumber) {
+                            Money amount, String description, boolean isPhoneNumber) {
         this.fromAccountNumber = fromAccountNumber;
         this.toIdentifier = toIdentifier;
         this.amount = amount;
@@ -48,11 +47,11 @@ public class TransferRequestDto {
         this.toIdentifier = toIdentifier;
     }
     
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
     
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
     
@@ -0,0 +1,11 @@
+package com.example.bankingsystem.dto;
+
+// The identifiers that must be unique across users, read for the registration pre-check
+public interface UserIdentifiers {
+    
+    String getEmail();
+    
+    String getPhoneNumber();
+    
+    String getAadharNumber();
+}
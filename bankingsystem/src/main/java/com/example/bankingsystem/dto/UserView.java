@@ -0,0 +1,23 @@
+package com.example.bankingsystem.dto;
+
+import com.example.bankingsystem.entity.User;
+
+import java.time.LocalDateTime;
+
+// Read-only row for user listings, without credentials, identity documents or associations
+public interface UserView {
+    
+    Long getId();
+    
+    String getFirstName();
+    
+    String getLastName();
+    
+    String getEmail();
+    
+    String getPhoneNumber();
+    
+    User.UserRole getRole();
+    
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,20 @@
+package com.example.bankingsystem.dto;
+
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.util.Money;
+
+import java.time.LocalDateTime;
+
+// One hour or day of the volume report, summed over the rollup slots
+public interface VolumeBucket {
+    
+    LocalDateTime getBucketStart();
+    
+    Transaction.TransactionType getTransactionType();
+    
+    Transaction.TransactionStatus getStatus();
+    
+    Long getTransactionCount();
+    
+    Money getTotalAmount();
+}
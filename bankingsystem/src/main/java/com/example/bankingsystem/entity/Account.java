@@ -1,19 +1,27 @@
 package com.example.bankingsystem.entity;
 
+import com.example.bankingsystem.util.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Formula;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Random;
 
 @Entity
 @Table(name = "accounts")
+// Balances are changed by conditional updates, so entity saves must never write back a stale balance
+@DynamicUpdate
 public class Account {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_id_pool")
+    @TableGenerator(name = "account_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "accounts", allocationSize = 100)
     private Long id;
     
     @Column(name = "account_number", unique = true, nullable = false)
@@ -23,9 +31,21 @@ public class Account {
     @Column(name = "account_type", nullable = false)
     private AccountType accountType;
     
-    @DecimalMin(value = "0.0", message = "Balance must be non-negative")
+    // Non-negative balance is enforced by the services and the conditional balance updates
     @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "DECIMAL(15,2) DEFAULT 0.00")
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
+    
+    // Zero for ordinary accounts; otherwise credits are spread over this many rows in account_balance_slots.
+    // Never bound from a request or written with the entity: AccountService.updateBalanceSlots moves the
+    // slot balances and changes the column together.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "balance_slots", nullable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
+    private int balanceSlots = 0;
+    
+    @Formula("(CASE WHEN balance_slots > 0 THEN " +
+             "(SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s WHERE s.account_id = id) " +
+             "ELSE 0 END)")
+    private BigDecimal slotBalance;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -42,12 +62,13 @@ public class Account {
     @JsonIgnoreProperties({"accounts", "accountRequests", "hibernateLazyInitializer", "handler"})
     private User user;
     
+    // Never part of the JSON: an account's transactions are read through the paged history endpoints
     @OneToMany(mappedBy = "fromAccount", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties({"fromAccount", "toAccount", "hibernateLazyInitializer", "handler"})
+    @JsonIgnore
     private List<Transaction> outgoingTransactions;
     
     @OneToMany(mappedBy = "toAccount", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties({"fromAccount", "toAccount", "hibernateLazyInitializer", "handler"})
+    @JsonIgnore
     private List<Transaction> incomingTransactions;
     
     public enum AccountType {
@@ -63,7 +84,7 @@ public class Account {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (accountNumber == null) {
-            generateAccountNumber();
+            throw new IllegalStateException("Account number must be allocated before the account is saved");
         }
     }
     
@@ -72,19 +93,10 @@ public class Account {
         updatedAt = LocalDateTime.now();
     }
     
-    private void generateAccountNumber() {
-        Random random = new Random();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 10; i++) {
-            sb.append(random.nextInt(10));
-        }
-        this.accountNumber = sb.toString();
-    }
-    
     // Constructors
     public Account() {}
     
-    public Account(AccountType accountType, BigDecimal initialBalance, User user) {
+    public Account(AccountType accountType, Money initialBalance, User user) {
         this.accountType = accountType;
         this.balance = initialBalance;
         this.user = user;
@@ -115,14 +127,22 @@ public class Account {
         this.accountType = accountType;
     }
     
-    public BigDecimal getBalance() {
-        return balance;
+    // The total balance; for sharded accounts the row only holds what has not been left in the slots
+    public Money getBalance() {
+        if (slotBalance == null || slotBalance.signum() == 0) {
+            return balance;
+        }
+        return balance.plus(Money.of(slotBalance));
     }
     
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
     
+    public int getBalanceSlots() {
+        return balanceSlots;
+    }
+    
     public AccountStatus getStatus() {
         return status;
     }
@@ -0,0 +1,84 @@
+package com.example.bankingsystem.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Running transaction counts of an account. Like balance slots, an account's counts may be spread over
+// a few slot rows so that concurrent transactions on one busy account do not queue on a single row.
+@Entity
+@Table(name = "account_activity",
+       uniqueConstraints = @UniqueConstraint(name = "uk_account_activity_slot", columnNames = {"account_id", "slot_index"}))
+public class AccountActivity {
+    
+    // Rows are only ever inserted by upserts in AccountActivityService
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+    
+    @Column(name = "slot_index", nullable = false)
+    private int slotIndex;
+    
+    @Column(name = "incoming_count", nullable = false)
+    private long incomingCount;
+    
+    @Column(name = "outgoing_count", nullable = false)
+    private long outgoingCount;
+    
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+    
+    // Constructors
+    public AccountActivity() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getAccountId() {
+        return accountId;
+    }
+    
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+    
+    public int getSlotIndex() {
+        return slotIndex;
+    }
+    
+    public void setSlotIndex(int slotIndex) {
+        this.slotIndex = slotIndex;
+    }
+    
+    public long getIncomingCount() {
+        return incomingCount;
+    }
+    
+    public void setIncomingCount(long incomingCount) {
+        this.incomingCount = incomingCount;
+    }
+    
+    public long getOutgoingCount() {
+        return outgoingCount;
+    }
+    
+    public void setOutgoingCount(long outgoingCount) {
+        this.outgoingCount = outgoingCount;
+    }
+    
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+    
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+}
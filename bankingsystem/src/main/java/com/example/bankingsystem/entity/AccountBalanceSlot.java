@@ -0,0 +1,67 @@
+package com.example.bankingsystem.entity;
+
+import com.example.bankingsystem.util.Money;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "account_balance_slots",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "slot_index"}))
+public class AccountBalanceSlot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_balance_slot_id_pool")
+    @TableGenerator(name = "account_balance_slot_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "account_balance_slots", allocationSize = 100)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+    
+    @Column(name = "slot_index", nullable = false)
+    private int slotIndex;
+    
+    @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "DECIMAL(15,2) DEFAULT 0.00")
+    private Money balance = Money.ZERO;
+    
+    // Constructors
+    public AccountBalanceSlot() {}
+    
+    public AccountBalanceSlot(Account account, int slotIndex) {
+        this.account = account;
+        this.slotIndex = slotIndex;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Account getAccount() {
+        return account;
+    }
+    
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+    
+    public int getSlotIndex() {
+        return slotIndex;
+    }
+    
+    public void setSlotIndex(int slotIndex) {
+        this.slotIndex = slotIndex;
+    }
+    
+    public Money getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(Money balance) {
+        this.balance = balance;
+    }
+}
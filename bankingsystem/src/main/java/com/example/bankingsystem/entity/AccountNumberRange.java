@@ -0,0 +1,40 @@
+package com.example.bankingsystem.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "account_number_ranges")
+public class AccountNumberRange {
+    
+    @Id
+    @Column(name = "range_name", length = 50)
+    private String rangeName;
+    
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+    
+    // Constructors
+    public AccountNumberRange() {}
+    
+    public AccountNumberRange(String rangeName, Long nextValue) {
+        this.rangeName = rangeName;
+        this.nextValue = nextValue;
+    }
+    
+    // Getters and Setters
+    public String getRangeName() {
+        return rangeName;
+    }
+    
+    public void setRangeName(String rangeName) {
+        this.rangeName = rangeName;
+    }
+    
+    public Long getNextValue() {
+        return nextValue;
+    }
+    
+    public void setNextValue(Long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -6,12 +6,24 @@ import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Responses always include the requesting user, both staff members and the created account, so every query
+// that feeds one loads them with this graph
 @Entity
-@Table(name = "account_requests")
+@NamedEntityGraph(name = AccountRequest.DETAILS_GRAPH, attributeNodes = {
+    @NamedAttributeNode("user"), @NamedAttributeNode("processedByStaff"),
+    @NamedAttributeNode("claimedByStaff"), @NamedAttributeNode("createdAccount")
+})
+@Table(name = "account_requests", indexes = {
+    @Index(name = "idx_account_requests_status_created", columnList = "status, created_at")
+})
 public class AccountRequest {
     
+    public static final String DETAILS_GRAPH = "AccountRequest.details";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_request_id_pool")
+    @TableGenerator(name = "account_request_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "account_requests", allocationSize = 100)
     private Long id;
     
     @Column(name = "request_id", unique = true, nullable = false)
@@ -51,6 +63,15 @@ public class AccountRequest {
     @JsonIgnoreProperties({"accounts", "accountRequests", "hibernateLazyInitializer", "handler"})
     private User processedByStaff;
     
+    // Set while a staff member holds the request in their work queue; an expired claim counts as no claim
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "claimed_by_staff_id")
+    @JsonIgnoreProperties({"accounts", "accountRequests", "hibernateLazyInitializer", "handler"})
+    private User claimedByStaff;
+    
+    @Column(name = "claim_expires_at")
+    private LocalDateTime claimExpiresAt;
+    
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "created_account_id")
     @JsonIgnoreProperties({"user", "transactions", "hibernateLazyInitializer", "handler"})
@@ -60,17 +81,12 @@ public class AccountRequest {
         PENDING, APPROVED, REJECTED, UNDER_REVIEW
     }
     
+    // Prefix of requestId; the rest comes from the SnowflakeIdGenerator bean, set by the service
+    public static final String REQUEST_ID_PREFIX = "REQ";
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        if (requestId == null) {
-            generateRequestId();
-        }
-    }
-    
-    private void generateRequestId() {
-        this.requestId = "REQ" + System.currentTimeMillis() + 
-                        String.format("%04d", (int)(Math.random() * 10000));
     }
     
     // Constructors
@@ -171,6 +187,22 @@ public class AccountRequest {
         this.processedByStaff = processedByStaff;
     }
     
+    public User getClaimedByStaff() {
+        return claimedByStaff;
+    }
+    
+    public void setClaimedByStaff(User claimedByStaff) {
+        this.claimedByStaff = claimedByStaff;
+    }
+    
+    public LocalDateTime getClaimExpiresAt() {
+        return claimExpiresAt;
+    }
+    
+    public void setClaimExpiresAt(LocalDateTime claimExpiresAt) {
+        this.claimExpiresAt = claimExpiresAt;
+    }
+    
     public Account getCreatedAccount() {
         return createdAccount;
     }
@@ -0,0 +1,84 @@
+package com.example.bankingsystem.entity;
+
+import com.example.bankingsystem.util.Money;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// The ledger balance of an account covering every entry up to and including lastEntryId
+@Entity
+@Table(name = "account_balance_snapshots", indexes = {
+    @Index(name = "idx_balance_snapshots_account", columnList = "account_id, last_entry_id"),
+    @Index(name = "idx_balance_snapshots_last_entry", columnList = "last_entry_id")
+})
+public class BalanceSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "balance_snapshot_id_pool")
+    @TableGenerator(name = "balance_snapshot_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "account_balance_snapshots", allocationSize = 100)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+    
+    @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "DECIMAL(15,2)")
+    private Money balance;
+    
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+    
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+    
+    // Constructors
+    public BalanceSnapshot() {}
+    
+    public BalanceSnapshot(Account account, Money balance, Long lastEntryId) {
+        this.account = account;
+        this.balance = balance;
+        this.lastEntryId = lastEntryId;
+        this.takenAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Account getAccount() {
+        return account;
+    }
+    
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+    
+    public Money getBalance() {
+        return balance;
+    }
+    
+    public void setBalance(Money balance) {
+        this.balance = balance;
+    }
+    
+    public Long getLastEntryId() {
+        return lastEntryId;
+    }
+    
+    public void setLastEntryId(Long lastEntryId) {
+        this.lastEntryId = lastEntryId;
+    }
+    
+    public LocalDateTime getTakenAt() {
+        return takenAt;
+    }
+    
+    public void setTakenAt(LocalDateTime takenAt) {
+        this.takenAt = takenAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankingsystem.entity;
+
+import jakarta.persistence.*;
+
+// How far one node's SnowflakeIdGenerator had got when last saved, one row per node id
+@Entity
+@Table(name = "id_generator_nodes")
+public class IdGeneratorNode {
+    
+    @Id
+    @Column(name = "node_id")
+    private Long nodeId;
+    
+    // Milliseconds since the generator's epoch; no id of this node has a later timestamp
+    @Column(name = "reserved_until", nullable = false)
+    private Long reservedUntil;
+    
+    // Constructors
+    public IdGeneratorNode() {}
+    
+    public IdGeneratorNode(Long nodeId, Long reservedUntil) {
+        this.nodeId = nodeId;
+        this.reservedUntil = reservedUntil;
+    }
+    
+    // Getters and Setters
+    public Long getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(Long nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public Long getReservedUntil() {
+        return reservedUntil;
+    }
+    
+    public void setReservedUntil(Long reservedUntil) {
+        this.reservedUntil = reservedUntil;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.bankingsystem.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One row per Idempotency-Key; the unique key is what stops two nodes from running the same request
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "idempotency_key_id_pool")
+    @TableGenerator(name = "idempotency_key_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "idempotency_keys", allocationSize = 100)
+    private Long id;
+    
+    @Column(name = "idempotency_key", unique = true, nullable = false, length = 100)
+    private String idempotencyKey;
+    
+    // Hash of the endpoint and its parameters, so a key cannot be reused for a different request
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.IN_PROGRESS;
+    
+    @Column(name = "response_status")
+    private Integer responseStatus;
+    
+    @Column(name = "response_body", columnDefinition = "MEDIUMTEXT")
+    private String responseBody;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    // Identifies the attempt that holds an IN_PROGRESS key; only that attempt may complete or release it
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    // An IN_PROGRESS key whose lease has run out belongs to an attempt that died and may be claimed again
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+    
+    // Constructors
+    public IdempotencyRecord() {}
+    
+    public IdempotencyRecord(String idempotencyKey, String requestHash, String claimToken,
+                             LocalDateTime leaseExpiresAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.claimToken = claimToken;
+        this.leaseExpiresAt = leaseExpiresAt;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    public String getRequestHash() {
+        return requestHash;
+    }
+    
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public Integer getResponseStatus() {
+        return responseStatus;
+    }
+    
+    public void setResponseStatus(Integer responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+    
+    public String getResponseBody() {
+        return responseBody;
+    }
+    
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public String getClaimToken() {
+        return claimToken;
+    }
+    
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+    
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.bankingsystem.entity;
+
+import com.example.bankingsystem.util.Money;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Append-only: rows are inserted with the movement they record and never updated or deleted
+@Entity
+@Table(name = "ledger_entries", indexes = @Index(name = "idx_ledger_entries_account", columnList = "account_id, id"))
+public class LedgerEntry {
+    
+    // AUTO_INCREMENT rather than the id pools: snapshots rely on later entries always getting higher ids
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_id")
+    private Transaction transaction;
+    
+    // Null stands for the bank's cash ledger, the other side of deposits and withdrawals
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id")
+    private Account account;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 10)
+    private EntryType entryType;
+    
+    @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "DECIMAL(15,2)")
+    private Money amount;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    public enum EntryType {
+        DEBIT, CREDIT
+    }
+    
+    // Constructors
+    public LedgerEntry() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Transaction getTransaction() {
+        return transaction;
+    }
+    
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+    
+    public Account getAccount() {
+        return account;
+    }
+    
+    public void setAccount(Account account) {
+        this.account = account;
+    }
+    
+    public EntryType getEntryType() {
+        return entryType;
+    }
+    
+    public void setEntryType(EntryType entryType) {
+        this.entryType = entryType;
+    }
+    
+    public Money getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
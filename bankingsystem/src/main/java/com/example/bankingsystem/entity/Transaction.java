@@ -1,17 +1,23 @@
 package com.example.bankingsystem.entity;
 
+import com.example.bankingsystem.util.Money;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_from_account_date", columnList = "from_account_id, transaction_date"),
+    @Index(name = "idx_transactions_to_account_date", columnList = "to_account_id, transaction_date"),
+    @Index(name = "idx_transactions_date", columnList = "transaction_date")
+})
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id_pool")
+    @TableGenerator(name = "transaction_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "transactions", allocationSize = 100)
     private Long id;
     
     @Column(name = "transaction_id", unique = true, nullable = false)
@@ -21,9 +27,9 @@ public class Transaction {
     @Column(name = "transaction_type", nullable = false)
     private TransactionType transactionType;
     
-    @DecimalMin(value = "0.0", inclusive = false, message = "Amount must be positive")
+    // Callers reject non-positive amounts before a transaction is created
     @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "DECIMAL(15,2)")
-    private BigDecimal amount;
+    private Money amount;
     
     @Column(name = "description")
     private String description;
@@ -59,23 +65,18 @@ public class Transaction {
         PENDING, COMPLETED, FAILED, CANCELLED
     }
     
+    // Prefix of transactionId; the rest comes from the SnowflakeIdGenerator bean, set by the service
+    public static final String TRANSACTION_ID_PREFIX = "TXN";
+    
     @PrePersist
     protected void onCreate() {
         transactionDate = LocalDateTime.now();
-        if (transactionId == null) {
-            generateTransactionId();
-        }
-    }
-    
-    private void generateTransactionId() {
-        this.transactionId = "TXN" + System.currentTimeMillis() + 
-                           String.format("%04d", (int)(Math.random() * 10000));
     }
     
     // Constructors
     public Transaction() {}
     
-    public Transaction(TransactionType transactionType, BigDecimal amount, 
+    public Transaction(TransactionType transactionType, Money amount, 
                       Account fromAccount, Account toAccount, String description) {
         this.transactionType = transactionType;
         this.amount = amount;
@@ -109,11 +110,11 @@ public class Transaction {
         this.transactionType = transactionType;
     }
     
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
     
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
     
@@ -0,0 +1,99 @@
+package com.example.bankingsystem.entity;
+
+import com.example.bankingsystem.util.Money;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Count and amount of the transactions created in one hour, per type and status. Each combination is
+// spread over a few slot rows so concurrent transactions do not all queue on one row; readers add them up.
+@Entity
+@Table(name = "transaction_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_transaction_rollups_bucket",
+                                             columnNames = {"bucket_start", "transaction_type", "status", "slot_index"}))
+public class TransactionRollup {
+    
+    // Rows are only ever inserted by upserts in TransactionRollupService
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false)
+    private Transaction.TransactionType transactionType;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionStatus status;
+    
+    @Column(name = "slot_index", nullable = false)
+    private int slotIndex;
+    
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+    
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2, columnDefinition = "DECIMAL(19,2)")
+    private Money totalAmount = Money.ZERO;
+    
+    // Constructors
+    public TransactionRollup() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public Transaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+    
+    public void setTransactionType(Transaction.TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+    
+    public Transaction.TransactionStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Transaction.TransactionStatus status) {
+        this.status = status;
+    }
+    
+    public int getSlotIndex() {
+        return slotIndex;
+    }
+    
+    public void setSlotIndex(int slotIndex) {
+        this.slotIndex = slotIndex;
+    }
+    
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+    
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+    
+    public Money getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(Money totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+}
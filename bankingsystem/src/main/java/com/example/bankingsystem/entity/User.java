@@ -1,17 +1,21 @@
 package com.example.bankingsystem.entity;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_updated_at", columnList = "updated_at")
+})
 public class User {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id_pool")
+    @TableGenerator(name = "user_id_pool", table = "id_pools", pkColumnName = "pool_name",
+                    valueColumnName = "next_value", pkColumnValue = "users", allocationSize = 100)
     private Long id;
     
     @NotBlank(message = "First name is required")
@@ -64,12 +68,13 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Never part of the JSON; a user's accounts and requests have endpoints of their own
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties({"user", "transactions", "hibernateLazyInitializer", "handler"})
+    @JsonIgnore
     private List<Account> accounts;
     
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties({"user", "processedByStaff", "createdAccount", "hibernateLazyInitializer", "handler"})
+    @JsonIgnore
     private List<AccountRequest> accountRequests;
     
     public enum UserRole {
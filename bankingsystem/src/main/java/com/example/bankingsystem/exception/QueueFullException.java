@@ -0,0 +1,11 @@
+package com.example.bankingsystem.exception;
+
+// Thrown when work is refused because a bounded queue is full; controllers answer 429 Too Many Requests
+public class QueueFullException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.dto.AccountActivityView;
+import com.example.bankingsystem.entity.AccountActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AccountActivityRepository extends JpaRepository<AccountActivity, Long> {
+    
+    @Query(value = "SELECT account_id AS accountId, SUM(incoming_count) AS incomingCount, " +
+                   "SUM(outgoing_count) AS outgoingCount, SUM(incoming_count + outgoing_count) AS totalCount, " +
+                   "MAX(last_activity_at) AS lastActivityAt FROM account_activity WHERE account_id = :accountId " +
+                   "GROUP BY account_id", nativeQuery = true)
+    Optional<AccountActivityView> findActivityByAccountId(@Param("accountId") Long accountId);
+    
+    @Query(value = "SELECT COALESCE(SUM(incoming_count + outgoing_count), 0) FROM account_activity " +
+                   "WHERE account_id = :accountId", nativeQuery = true)
+    long sumTransactionCount(@Param("accountId") Long accountId);
+    
+    @Modifying
+    @Query(value = "DELETE FROM account_activity WHERE account_id BETWEEN :fromId AND :toId", nativeQuery = true)
+    int deleteActivityBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+    
+    // Recounts the accounts in [fromId, toId] into slot 0; each branch reads only its account/date index
+    @Modifying
+    @Query(value = "INSERT INTO account_activity " +
+                   "(account_id, slot_index, incoming_count, outgoing_count, last_activity_at) " +
+                   "SELECT account_id, 0, SUM(incoming), SUM(outgoing), MAX(transaction_date) FROM (" +
+                   "SELECT to_account_id AS account_id, 1 AS incoming, 0 AS outgoing, transaction_date " +
+                   "FROM transactions WHERE to_account_id BETWEEN :fromId AND :toId " +
+                   "UNION ALL " +
+                   "SELECT from_account_id, 0, 1, transaction_date " +
+                   "FROM transactions WHERE from_account_id BETWEEN :fromId AND :toId" +
+                   ") activity GROUP BY account_id", nativeQuery = true)
+    int insertActivityFromTransactions(@Param("fromId") long fromId, @Param("toId") long toId);
+}
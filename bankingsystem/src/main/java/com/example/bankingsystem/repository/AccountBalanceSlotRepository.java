@@ -0,0 +1,34 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.AccountBalanceSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+    
+    @Query("SELECT s.slotIndex FROM AccountBalanceSlot s WHERE s.account.id = :accountId")
+    List<Integer> findSlotIndexesByAccountId(@Param("accountId") Long accountId);
+    
+    @Modifying
+    @Query(value = "UPDATE account_balance_slots SET balance = balance + :amount " +
+                   "WHERE account_id = :accountId AND slot_index = :slotIndex", nativeQuery = true)
+    int creditSlot(@Param("accountId") Long accountId, @Param("slotIndex") int slotIndex,
+                   @Param("amount") BigDecimal amount);
+    
+    // Locks every slot of the account until the sweep commits
+    @Query(value = "SELECT COALESCE(SUM(balance), 0) FROM account_balance_slots " +
+                   "WHERE account_id = :accountId FOR UPDATE", nativeQuery = true)
+    BigDecimal sumBalancesForUpdate(@Param("accountId") Long accountId);
+    
+    @Modifying
+    @Query(value = "UPDATE account_balance_slots SET balance = 0 " +
+                   "WHERE account_id = :accountId AND balance <> 0", nativeQuery = true)
+    int clearBalances(@Param("accountId") Long accountId);
+}
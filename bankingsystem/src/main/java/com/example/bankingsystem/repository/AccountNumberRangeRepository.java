@@ -0,0 +1,25 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.AccountNumberRange;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AccountNumberRangeRepository extends JpaRepository<AccountNumberRange, String> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<AccountNumberRange> findByRangeName(String rangeName);
+    
+    // Leaves an existing row alone, so nodes starting together on an empty table do not collide
+    @Modifying
+    @Query(value = "INSERT INTO account_number_ranges (range_name, next_value) VALUES (:rangeName, :nextValue) " +
+                   "ON DUPLICATE KEY UPDATE range_name = range_name", nativeQuery = true)
+    int insertIfAbsent(@Param("rangeName") String rangeName, @Param("nextValue") long nextValue);
+}
@@ -1,12 +1,18 @@
 package com.example.bankingsystem.repository;
 
+import com.example.bankingsystem.dto.AccountView;
 import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,25 +21,106 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     
     Optional<Account> findByAccountNumber(String accountNumber);
     
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Long> findIdByAccountNumber(@Param("accountNumber") String accountNumber);
+    
+    @Query("SELECT a.accountNumber, a.id FROM Account a WHERE a.accountNumber IN :accountNumbers")
+    List<Object[]> findIdsByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+    
+    @Query("SELECT a.user.phoneNumber, MIN(a.id) FROM Account a WHERE a.user.phoneNumber IN :phoneNumbers " +
+           "AND a.status = 'ACTIVE' GROUP BY a.user.phoneNumber")
+    List<Object[]> findFirstActiveAccountIdsByUserPhoneNumberIn(@Param("phoneNumbers") Collection<String> phoneNumbers);
+    
+    @Query("SELECT a.status FROM Account a WHERE a.id = :id")
+    Optional<Account.AccountStatus> findStatusById(@Param("id") Long id);
+    
+    // Native so the amount binds as a plain DECIMAL rather than through the Money converter
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + :amount, updated_at = :now " +
+                   "WHERE id = :id AND status = 'ACTIVE'", nativeQuery = true)
+    int creditActiveAccount(@Param("id") Long id, @Param("amount") BigDecimal amount,
+                            @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance - :amount, updated_at = :now " +
+                   "WHERE id = :id AND status = 'ACTIVE' AND balance >= :amount", nativeQuery = true)
+    int debitActiveAccount(@Param("id") Long id, @Param("amount") BigDecimal amount,
+                           @Param("now") LocalDateTime now);
+    
+    @Query("SELECT a.balanceSlots FROM Account a WHERE a.id = :id AND a.status = 'ACTIVE'")
+    Optional<Integer> findBalanceSlotsOfActiveAccount(@Param("id") Long id);
+    
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + :amount, updated_at = :now WHERE id = :id",
+           nativeQuery = true)
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount,
+                     @Param("now") LocalDateTime now);
+    
+    @Query(value = "SELECT balance FROM accounts WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<BigDecimal> findBalanceByIdForUpdate(@Param("id") Long id);
+    
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance_slots = :balanceSlots WHERE id = :id", nativeQuery = true)
+    int updateBalanceSlots(@Param("id") Long id, @Param("balanceSlots") int balanceSlots);
+    
+    // Listing rows: one query, no user or transaction loads, slot balances folded in like Account.getBalance()
+    String ACCOUNT_VIEW_SELECT =
+        "SELECT a.id AS id, a.account_number AS accountNumber, a.account_type AS accountType, " +
+        "a.balance + CASE WHEN a.balance_slots > 0 THEN " +
+        "(SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s WHERE s.account_id = a.id) " +
+        "ELSE 0 END AS balance, " +
+        "a.status AS status, a.created_at AS createdAt, u.id AS userId, u.first_name AS userFirstName, " +
+        "u.last_name AS userLastName, u.phone_number AS userPhoneNumber " +
+        "FROM accounts a JOIN users u ON u.id = a.user_id ";
+    
+    @Query(value = ACCOUNT_VIEW_SELECT + "WHERE a.status = :status ORDER BY a.id", nativeQuery = true)
+    List<AccountView> findViewsByStatus(@Param("status") String status);
+    
+    @Query(value = ACCOUNT_VIEW_SELECT + "WHERE a.account_type = :accountType ORDER BY a.id", nativeQuery = true)
+    List<AccountView> findViewsByAccountType(@Param("accountType") String accountType);
+    
+    @Query(value = ACCOUNT_VIEW_SELECT +
+                   "WHERE (:status IS NULL OR a.status = :status) " +
+                   "AND (:accountType IS NULL OR a.account_type = :accountType) " +
+                   "AND (:beforeId IS NULL OR a.id < :beforeId) ORDER BY a.id DESC LIMIT :limit", nativeQuery = true)
+    List<AccountView> findViewsBefore(@Param("status") String status, @Param("accountType") String accountType,
+                                      @Param("beforeId") Long beforeId, @Param("limit") int limit);
+    
+    @EntityGraph(attributePaths = "user")
     List<Account> findByUser(User user);
     
+    @EntityGraph(attributePaths = "user")
     List<Account> findByUserId(Long userId);
     
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT a FROM Account a WHERE a.user.id = :userId AND a.status = 'ACTIVE'")
+    List<Account> findActiveAccountsByUserId(@Param("userId") Long userId);
+    
+    // Through the unique phone number index to the user, then the user's accounts by their user_id index
+    @Query("SELECT a.id FROM Account a WHERE a.user.phoneNumber = :phoneNumber ORDER BY a.id")
+    List<Long> findIdsByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    
+    // Ordered by id, so the first entry is the user's oldest active account
+    @Query("SELECT a.id FROM Account a WHERE a.user.phoneNumber = :phoneNumber AND a.status = 'ACTIVE' " +
+           "ORDER BY a.id")
+    List<Long> findActiveAccountIdsByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    
     List<Account> findByStatus(Account.AccountStatus status);
     
     List<Account> findByAccountType(Account.AccountType accountType);
     
-    @Query("SELECT a FROM Account a WHERE a.user.phoneNumber = :phoneNumber")
-    List<Account> findByUserPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    boolean existsByAccountNumber(String accountNumber);
     
-    @Query("SELECT a FROM Account a WHERE a.user.phoneNumber = :phoneNumber AND a.status = 'ACTIVE'")
-    List<Account> findActiveAccountsByUserPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    @Query("SELECT MIN(a.id) FROM Account a")
+    Long findMinId();
     
-    boolean existsByAccountNumber(String accountNumber);
+    @Query("SELECT MAX(a.id) FROM Account a")
+    Long findMaxId();
     
     @Query("SELECT COUNT(a) FROM Account a WHERE a.user = :user")
     long countAccountsByUser(@Param("user") User user);
     
+    @EntityGraph(attributePaths = "user")
     @Query("SELECT a FROM Account a WHERE a.user = :user AND a.status = 'ACTIVE'")
     List<Account> findActiveAccountsByUser(@Param("user") User user);
 }
@@ -2,31 +2,69 @@ package com.example.bankingsystem.repository;
 
 import com.example.bankingsystem.entity.AccountRequest;
 import com.example.bankingsystem.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRequestRepository extends JpaRepository<AccountRequest, Long> {
     
+    @Override
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
+    Optional<AccountRequest> findById(Long id);
+    
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     Optional<AccountRequest> findByRequestId(String requestId);
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     List<AccountRequest> findByUser(User user);
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     List<AccountRequest> findByUserId(Long userId);
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     List<AccountRequest> findByStatus(AccountRequest.RequestStatus status);
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     List<AccountRequest> findByProcessedByStaff(User staff);
     
-    @Query("SELECT ar FROM AccountRequest ar WHERE ar.status = 'PENDING' ORDER BY ar.createdAt ASC")
-    List<AccountRequest> findPendingRequestsOrderByCreatedDate();
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ar FROM AccountRequest ar WHERE ar.id = :id")
+    Optional<AccountRequest> findByIdForUpdate(@Param("id") Long id);
+    
+    // Pending requests nobody holds an unexpired claim on, oldest first
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
+    @Query("SELECT ar FROM AccountRequest ar WHERE ar.status = 'PENDING' " +
+           "AND (ar.claimExpiresAt IS NULL OR ar.claimExpiresAt < :now) ORDER BY ar.createdAt ASC")
+    List<AccountRequest> findUnclaimedPendingRequests(@Param("now") LocalDateTime now);
+    
+    // Locks the oldest claimable requests; rows another staff member is claiming at the same moment are skipped
+    // rather than waited for, so concurrent claims never hand out the same request
+    @Query(value = "SELECT id FROM account_requests WHERE status = 'PENDING' " +
+                   "AND (claim_expires_at IS NULL OR claim_expires_at < :now) " +
+                   "ORDER BY created_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockClaimableRequestIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
+    @Query("SELECT ar FROM AccountRequest ar WHERE ar.id IN :ids ORDER BY ar.createdAt, ar.id")
+    List<AccountRequest> findByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
+    @Query("SELECT ar FROM AccountRequest ar WHERE ar.claimedByStaff = :staff AND ar.status = 'PENDING' " +
+           "AND ar.claimExpiresAt >= :now ORDER BY ar.createdAt, ar.id")
+    List<AccountRequest> findClaimedBy(@Param("staff") User staff, @Param("now") LocalDateTime now);
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     @Query("SELECT ar FROM AccountRequest ar WHERE ar.status = :status " +
            "AND ar.createdAt BETWEEN :startDate AND :endDate ORDER BY ar.createdAt DESC")
     List<AccountRequest> findRequestsByStatusAndDateRange(
@@ -35,12 +73,27 @@ public interface AccountRequestRepository extends JpaRepository<AccountRequest,
         @Param("endDate") LocalDateTime endDate
     );
     
+    // Staff listing, newest first by id
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
+    @Query("SELECT ar FROM AccountRequest ar WHERE (:status IS NULL OR ar.status = :status) " +
+           "AND (:startDate IS NULL OR ar.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR ar.createdAt <= :endDate) " +
+           "AND (:beforeId IS NULL OR ar.id < :beforeId) ORDER BY ar.id DESC")
+    List<AccountRequest> findRequestsBefore(
+        @Param("status") AccountRequest.RequestStatus status,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate,
+        @Param("beforeId") Long beforeId,
+        Pageable pageable
+    );
+    
     @Query("SELECT COUNT(ar) FROM AccountRequest ar WHERE ar.user = :user AND ar.status = 'PENDING'")
     long countPendingRequestsByUser(@Param("user") User user);
     
     @Query("SELECT COUNT(ar) FROM AccountRequest ar WHERE ar.status = 'PENDING'")
     long countAllPendingRequests();
     
+    @EntityGraph(AccountRequest.DETAILS_GRAPH)
     @Query("SELECT ar FROM AccountRequest ar WHERE ar.processedByStaff = :staff " +
            "AND ar.processedAt BETWEEN :startDate AND :endDate")
     List<AccountRequest> findRequestsProcessedByStaffInDateRange(
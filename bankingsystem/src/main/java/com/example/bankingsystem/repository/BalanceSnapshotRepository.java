@@ -0,0 +1,25 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    
+    Optional<BalanceSnapshot> findFirstByAccountIdOrderByLastEntryIdDesc(Long accountId);
+    
+    boolean existsByAccountId(Long accountId);
+    
+    @Query(value = "SELECT a.id FROM accounts a " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM account_balance_snapshots s WHERE s.account_id = a.id)",
+           nativeQuery = true)
+    List<Long> findAccountIdsWithoutSnapshot();
+    
+    @Query(value = "SELECT COALESCE(MAX(last_entry_id), 0) FROM account_balance_snapshots", nativeQuery = true)
+    long findLastCoveredEntryId();
+}
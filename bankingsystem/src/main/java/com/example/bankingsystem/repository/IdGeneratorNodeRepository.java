@@ -0,0 +1,9 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.IdGeneratorNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdGeneratorNodeRepository extends JpaRepository<IdGeneratorNode, Long> {
+}
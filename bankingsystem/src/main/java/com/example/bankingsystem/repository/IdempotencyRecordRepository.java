@@ -0,0 +1,44 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :idempotencyKey " +
+           "AND r.claimToken = :claimToken AND r.status = 'IN_PROGRESS'")
+    int deleteInProgress(@Param("idempotencyKey") String idempotencyKey, @Param("claimToken") String claimToken);
+    
+    // Rows from before leases existed have none and count as expired
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.claimToken = :claimToken, r.requestHash = :requestHash, " +
+           "r.leaseExpiresAt = :leaseExpiresAt WHERE r.idempotencyKey = :idempotencyKey " +
+           "AND r.status = 'IN_PROGRESS' AND (r.leaseExpiresAt IS NULL OR r.leaseExpiresAt < :now)")
+    int reclaimExpired(@Param("idempotencyKey") String idempotencyKey, @Param("requestHash") String requestHash,
+                       @Param("claimToken") String claimToken, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+                       @Param("now") LocalDateTime now);
+    
+    // Zero rows means the claim was taken over after its lease ran out
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.responseStatus = :responseStatus, " +
+           "r.responseBody = :responseBody, r.completedAt = :completedAt WHERE r.idempotencyKey = :idempotencyKey " +
+           "AND r.claimToken = :claimToken AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("idempotencyKey") String idempotencyKey, @Param("claimToken") String claimToken,
+                 @Param("status") IdempotencyRecord.Status status, @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody, @Param("completedAt") LocalDateTime completedAt);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,33 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+    
+    // Credits minus debits after the given entry; served from the (account_id, id) index
+    @Query(value = "SELECT COALESCE(SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END), 0) " +
+                   "FROM ledger_entries WHERE account_id = :accountId AND id > :afterEntryId", nativeQuery = true)
+    BigDecimal sumNetAmountAfter(@Param("accountId") Long accountId, @Param("afterEntryId") long afterEntryId);
+    
+    @Query(value = "SELECT COALESCE(MAX(id), :afterEntryId) FROM ledger_entries " +
+                   "WHERE account_id = :accountId AND id > :afterEntryId", nativeQuery = true)
+    long findLastEntryIdAfter(@Param("accountId") Long accountId, @Param("afterEntryId") long afterEntryId);
+    
+    @Query(value = "SELECT COALESCE(MAX(id), 0) FROM ledger_entries", nativeQuery = true)
+    long findLastEntryId();
+    
+    // [account id, entry count] for every account with entries in (afterEntryId, upToEntryId]
+    @Query(value = "SELECT account_id, COUNT(*) FROM ledger_entries " +
+                   "WHERE id > :afterEntryId AND id <= :upToEntryId AND account_id IS NOT NULL " +
+                   "GROUP BY account_id", nativeQuery = true)
+    List<Object[]> countEntriesByAccountBetween(@Param("afterEntryId") long afterEntryId,
+                                                @Param("upToEntryId") long upToEntryId);
+}
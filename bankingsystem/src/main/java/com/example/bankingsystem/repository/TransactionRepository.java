@@ -1,56 +1,180 @@
 package com.example.bankingsystem.repository;
 
-import com.example.bankingsystem.entity.Account;
+import com.example.bankingsystem.dto.TransactionView;
 import com.example.bankingsystem.entity.Transaction;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
+    // Lookups whose responses show both accounts load them in the same query
+    @Override
+    @EntityGraph(attributePaths = {"fromAccount", "toAccount"})
+    Optional<Transaction> findById(Long id);
+    
+    @EntityGraph(attributePaths = {"fromAccount", "toAccount"})
     Optional<Transaction> findByTransactionId(String transactionId);
     
-    List<Transaction> findByFromAccount(Account fromAccount);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id")
+    Optional<Transaction> findByIdForUpdate(@Param("id") Long id);
+    
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = 'PENDING' AND t.transactionType = 'TRANSFER' ORDER BY t.id")
+    List<Long> findPendingTransferIds();
+    
+    // Account history is the union of two index range scans, one on (from_account_id, transaction_date)
+    // and one on (to_account_id, transaction_date); an OR over both columns would scan the whole table.
+    // The second branch skips rows already returned by the first, so a self-transfer is listed once.
+    // Every branch sorts and limits on its own index before the outer merge applies the final order.
+    // The merged rows are returned as TransactionView, with both account numbers joined in the same query.
+    
+    String TRANSACTION_VIEW_SELECT =
+        "SELECT t.id AS id, t.transaction_id AS transactionId, t.transaction_type AS transactionType, " +
+        "t.amount AS amount, t.description AS description, t.status AS status, " +
+        "t.transaction_date AS transactionDate, fa.account_number AS fromAccountNumber, " +
+        "ta.account_number AS toAccountNumber, t.recipient_phone AS recipientPhone, " +
+        "t.recipient_account_number AS recipientAccountNumber FROM (";
+    
+    String TRANSACTION_VIEW_JOIN =
+        ") t LEFT JOIN accounts fa ON fa.id = t.from_account_id LEFT JOIN accounts ta ON ta.id = t.to_account_id ";
     
-    List<Transaction> findByToAccount(Account toAccount);
+    String TO_ACCOUNT_BRANCH =
+        "SELECT * FROM transactions WHERE to_account_id = :accountId " +
+        "AND (from_account_id IS NULL OR from_account_id <> :accountId) ";
     
-    @Query("SELECT t FROM Transaction t WHERE t.fromAccount = :account OR t.toAccount = :account ORDER BY t.transactionDate DESC")
-    List<Transaction> findAllTransactionsByAccount(@Param("account") Account account);
+    String NEWEST_FIRST = "ORDER BY transaction_date DESC, id DESC ";
     
-    @Query("SELECT t FROM Transaction t WHERE t.fromAccount = :account OR t.toAccount = :account ORDER BY t.transactionDate DESC")
-    Page<Transaction> findAllTransactionsByAccount(@Param("account") Account account, Pageable pageable);
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH + ")" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC", nativeQuery = true)
+    List<TransactionView> findAllTransactionsByAccount(@Param("accountId") Long accountId);
+    
+    // rowLimit is offset + limit: no branch can contribute more rows than that to the requested page
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId " + NEWEST_FIRST + "LIMIT :rowLimit) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH + NEWEST_FIRST + "LIMIT :rowLimit)" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<TransactionView> findTransactionsByAccount(@Param("accountId") Long accountId, @Param("offset") long offset,
+                                                    @Param("limit") int limit, @Param("rowLimit") long rowLimit);
+    
+    // Keyset pages: the id breaks ties between transactions with the same timestamp, and only the
+    // requested number of rows is read because there is no offset to skip and no count query
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId " + NEWEST_FIRST + "LIMIT :limit) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH + NEWEST_FIRST + "LIMIT :limit)" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionView> findFirstTransactionsByAccount(@Param("accountId") Long accountId, @Param("limit") int limit);
+    
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+                   "AND (transaction_date < :date OR (transaction_date = :date AND id < :id)) " +
+                   NEWEST_FIRST + "LIMIT :limit) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH +
+                   "AND (transaction_date < :date OR (transaction_date = :date AND id < :id)) " +
+                   NEWEST_FIRST + "LIMIT :limit)" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit", nativeQuery = true)
+    List<TransactionView> findTransactionsByAccountBefore(
+        @Param("accountId") Long accountId,
+        @Param("date") LocalDateTime date,
+        @Param("id") Long id,
+        @Param("limit") int limit
+    );
     
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccount = :account OR t.toAccount = :account) " +
-           "AND t.transactionDate BETWEEN :startDate AND :endDate ORDER BY t.transactionDate DESC")
-    List<Transaction> findTransactionsByAccountAndDateRange(
-        @Param("account") Account account, 
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+                   "AND transaction_date BETWEEN :startDate AND :endDate) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH + "AND transaction_date BETWEEN :startDate AND :endDate)" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC", nativeQuery = true)
+    List<TransactionView> findTransactionsByAccountAndDateRange(
+        @Param("accountId") Long accountId, 
         @Param("startDate") LocalDateTime startDate, 
         @Param("endDate") LocalDateTime endDate
     );
     
-    @Query("SELECT t FROM Transaction t WHERE t.fromAccount.user.phoneNumber = :phoneNumber " +
-           "OR t.toAccount.user.phoneNumber = :phoneNumber ORDER BY t.transactionDate DESC")
-    List<Transaction> findTransactionsByUserPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    // History across several accounts of one customer; transfers between two of them are listed once
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id IN (:accountIds)) " +
+                   "UNION ALL " +
+                   "(SELECT * FROM transactions WHERE to_account_id IN (:accountIds) " +
+                   "AND (from_account_id IS NULL OR from_account_id NOT IN (:accountIds)))" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.transaction_date DESC, t.id DESC", nativeQuery = true)
+    List<TransactionView> findTransactionsByAccountIds(@Param("accountIds") Collection<Long> accountIds);
     
+    // Staff listing, newest first by id; every filter is optional
+    @Query("SELECT t.id AS id, t.transactionId AS transactionId, t.transactionType AS transactionType, " +
+           "t.amount AS amount, t.description AS description, t.status AS status, " +
+           "t.transactionDate AS transactionDate, fa.accountNumber AS fromAccountNumber, " +
+           "ta.accountNumber AS toAccountNumber, t.recipientPhone AS recipientPhone, " +
+           "t.recipientAccountNumber AS recipientAccountNumber " +
+           "FROM Transaction t LEFT JOIN t.fromAccount fa LEFT JOIN t.toAccount ta " +
+           "WHERE (:status IS NULL OR t.status = :status) " +
+           "AND (:type IS NULL OR t.transactionType = :type) " +
+           "AND (:startDate IS NULL OR t.transactionDate >= :startDate) " +
+           "AND (:endDate IS NULL OR t.transactionDate <= :endDate) " +
+           "AND (:beforeId IS NULL OR t.id < :beforeId) ORDER BY t.id DESC")
+    List<TransactionView> findViewsBefore(
+        @Param("status") Transaction.TransactionStatus status,
+        @Param("type") Transaction.TransactionType type,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate,
+        @Param("beforeId") Long beforeId,
+        Pageable pageable
+    );
+    
+    // Export streams: Integer.MIN_VALUE is how MySQL Connector/J is told to stream rows one at a time
+    // instead of buffering the whole result set. The streams must be consumed inside a transaction.
+    // Rows come back as TransactionView, so nothing piles up in the persistence context.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "SELECT * FROM transactions WHERE transaction_date BETWEEN :startDate AND :endDate" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.id", nativeQuery = true)
+    Stream<TransactionView> streamTransactionsBetweenDates(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    // The same two index branches as the account history, so the export reads only the account's rows
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query(value = TRANSACTION_VIEW_SELECT +
+                   "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+                   "AND transaction_date BETWEEN :startDate AND :endDate) " +
+                   "UNION ALL (" + TO_ACCOUNT_BRANCH + "AND transaction_date BETWEEN :startDate AND :endDate)" +
+                   TRANSACTION_VIEW_JOIN + "ORDER BY t.id", nativeQuery = true)
+    Stream<TransactionView> streamTransactionsByAccountBetweenDates(
+        @Param("accountId") Long accountId,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    @EntityGraph(attributePaths = {"fromAccount", "toAccount"})
     List<Transaction> findByStatus(Transaction.TransactionStatus status);
     
+    @EntityGraph(attributePaths = {"fromAccount", "toAccount"})
     List<Transaction> findByTransactionType(Transaction.TransactionType transactionType);
     
+    @EntityGraph(attributePaths = {"fromAccount", "toAccount"})
     @Query("SELECT t FROM Transaction t WHERE t.status = 'COMPLETED' " +
            "AND t.transactionDate BETWEEN :startDate AND :endDate")
     List<Transaction> findCompletedTransactionsBetweenDates(
         @Param("startDate") LocalDateTime startDate, 
         @Param("endDate") LocalDateTime endDate
     );
-    
-    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.fromAccount = :account OR t.toAccount = :account")
-    long countTransactionsByAccount(@Param("account") Account account);
 }
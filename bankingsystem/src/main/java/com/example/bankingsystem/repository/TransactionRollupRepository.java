@@ -0,0 +1,59 @@
+package com.example.bankingsystem.repository;
+
+import com.example.bankingsystem.dto.VolumeBucket;
+import com.example.bankingsystem.entity.TransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, Long> {
+    
+    String VOLUME_FILTER =
+        "FROM transaction_rollups WHERE bucket_start >= :startDate AND bucket_start < :endDate " +
+        "AND (:transactionType IS NULL OR transaction_type = :transactionType) " +
+        "AND (:status IS NULL OR status = :status) ";
+    
+    String HOUR_OF_TRANSACTION = "TIMESTAMPADD(HOUR, HOUR(transaction_date), DATE(transaction_date))";
+    
+    @Query(value = "SELECT bucket_start AS bucketStart, transaction_type AS transactionType, status AS status, " +
+                   "SUM(transaction_count) AS transactionCount, SUM(total_amount) AS totalAmount " + VOLUME_FILTER +
+                   "GROUP BY bucket_start, transaction_type, status " +
+                   "HAVING SUM(transaction_count) <> 0 ORDER BY bucket_start, transaction_type, status",
+           nativeQuery = true)
+    List<VolumeBucket> findHourlyVolume(@Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate,
+                                        @Param("transactionType") String transactionType,
+                                        @Param("status") String status);
+    
+    @Query(value = "SELECT CAST(DATE(bucket_start) AS DATETIME) AS bucketStart, transaction_type AS transactionType, " +
+                   "status AS status, SUM(transaction_count) AS transactionCount, SUM(total_amount) AS totalAmount " +
+                   VOLUME_FILTER + "GROUP BY DATE(bucket_start), transaction_type, status " +
+                   "HAVING SUM(transaction_count) <> 0 ORDER BY bucketStart, transaction_type, status",
+           nativeQuery = true)
+    List<VolumeBucket> findDailyVolume(@Param("startDate") LocalDateTime startDate,
+                                       @Param("endDate") LocalDateTime endDate,
+                                       @Param("transactionType") String transactionType,
+                                       @Param("status") String status);
+    
+    @Modifying
+    @Query(value = "DELETE FROM transaction_rollups WHERE bucket_start >= :startDate AND bucket_start < :endDate",
+           nativeQuery = true)
+    int deleteBucketsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    // Recounts the range from the transactions themselves, into slot 0
+    @Modifying
+    @Query(value = "INSERT INTO transaction_rollups " +
+                   "(bucket_start, transaction_type, status, slot_index, transaction_count, total_amount) " +
+                   "SELECT " + HOUR_OF_TRANSACTION + ", transaction_type, status, 0, COUNT(*), SUM(amount) " +
+                   "FROM transactions WHERE transaction_date >= :startDate AND transaction_date < :endDate " +
+                   "GROUP BY " + HOUR_OF_TRANSACTION + ", transaction_type, status",
+           nativeQuery = true)
+    int insertBucketsFromTransactions(@Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+}
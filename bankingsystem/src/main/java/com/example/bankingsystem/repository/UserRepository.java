@@ -1,13 +1,22 @@
 package com.example.bankingsystem.repository;
 
+import com.example.bankingsystem.dto.UserIdentifiers;
+import com.example.bankingsystem.dto.UserView;
 import com.example.bankingsystem.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -18,6 +27,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByAadharNumber(String aadharNumber);
     
+    @Query("SELECT u.id FROM User u WHERE u.phoneNumber = :phoneNumber")
+    Optional<Long> findIdByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+    
     boolean existsByEmail(String email);
     
     boolean existsByPhoneNumber(String phoneNumber);
@@ -26,8 +38,49 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<User> findByRole(User.UserRole role);
     
-    @Query("SELECT u FROM User u WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name%")
-    List<User> findByNameContaining(@Param("name") String name);
+    String USER_VIEW_SELECT =
+        "SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.email AS email, " +
+        "u.phoneNumber AS phoneNumber, u.role AS role, u.createdAt AS createdAt FROM User u ";
+    
+    @Query(USER_VIEW_SELECT + "WHERE u.role = :role ORDER BY u.id")
+    List<UserView> findViewsByRole(@Param("role") User.UserRole role);
+    
+    @Query(USER_VIEW_SELECT + "WHERE u.role = 'STAFF' OR u.role = 'ADMIN' ORDER BY u.id")
+    List<UserView> findAllStaffViews();
+    
+    @Query(USER_VIEW_SELECT + "WHERE (:role IS NULL OR u.role = :role) " +
+           "AND (:beforeId IS NULL OR u.id < :beforeId) ORDER BY u.id DESC")
+    List<UserView> findViewsBefore(@Param("role") User.UserRole role, @Param("beforeId") Long beforeId,
+                                   Pageable pageable);
+    
+    // Only used until the in-memory search index has been built
+    @Query(USER_VIEW_SELECT + "WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name% ORDER BY u.id DESC")
+    List<UserView> findViewsByNameContaining(@Param("name") String name, Pageable pageable);
+    
+    @Query(USER_VIEW_SELECT + "WHERE u.id IN :ids")
+    List<UserView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Read row by row for building the search index; must be consumed inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(USER_VIEW_SELECT + "ORDER BY u.id")
+    Stream<UserView> streamViews();
+    
+    @Query(USER_VIEW_SELECT + "WHERE u.updatedAt >= :since")
+    List<UserView> findViewsUpdatedSince(@Param("since") LocalDateTime since);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.email AS email, u.phoneNumber AS phoneNumber, u.aadharNumber AS aadharNumber FROM User u")
+    Stream<UserIdentifiers> streamIdentifiers();
+    
+    @Query("SELECT u.email AS email, u.phoneNumber AS phoneNumber, u.aadharNumber AS aadharNumber FROM User u " +
+           "WHERE u.updatedAt >= :since")
+    List<UserIdentifiers> findIdentifiersUpdatedSince(@Param("since") LocalDateTime since);
     
     @Query("SELECT u FROM User u WHERE u.role = 'STAFF' OR u.role = 'ADMIN'")
     List<User> findAllStaff();
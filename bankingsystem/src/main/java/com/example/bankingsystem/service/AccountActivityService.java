@@ -0,0 +1,175 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.AccountActivityView;
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.repository.AccountActivityRepository;
+import com.example.bankingsystem.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Incoming and outgoing transaction counts per account, incremented in the same database transaction
+// as every Transaction insert, so showing an account's count never has to count its transactions.
+@Service
+@Transactional
+public class AccountActivityService {
+    
+    private static final String UPSERT_SQL =
+        "INSERT INTO account_activity (account_id, slot_index, incoming_count, outgoing_count, last_activity_at) " +
+        "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+        "incoming_count = incoming_count + VALUES(incoming_count), " +
+        "outgoing_count = outgoing_count + VALUES(outgoing_count), " +
+        "last_activity_at = GREATEST(COALESCE(last_activity_at, VALUES(last_activity_at)), VALUES(last_activity_at))";
+    
+    @Autowired
+    private AccountActivityRepository accountActivityRepository;
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    @Autowired
+    private LookupCache lookupCache;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.account-activity.slots:4}")
+    private int slots;
+    
+    @Value("${banking.account-activity.rebuild-chunk-size:1000}")
+    private int rebuildChunkSize;
+    
+    @Value("${banking.account-activity.max-partitions:8}")
+    private int maxPartitions;
+    
+    // Call after the transactions were saved, once their transaction dates are set
+    public void recordTransactions(List<Transaction> transactions) {
+        // Sorted by account id, so concurrent writers lock counter rows in the same order
+        Map<Long, Counts> counts = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getToAccount() != null) {
+                counts.computeIfAbsent(transaction.getToAccount().getId(), id -> new Counts())
+                    .add(1, 0, transaction.getTransactionDate());
+            }
+            if (transaction.getFromAccount() != null) {
+                counts.computeIfAbsent(transaction.getFromAccount().getId(), id -> new Counts())
+                    .add(0, 1, transaction.getTransactionDate());
+            }
+        }
+        
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        for (Map.Entry<Long, Counts> entry : counts.entrySet()) {
+            Counts accountCounts = entry.getValue();
+            rows.add(new Object[] {entry.getKey(), slot, accountCounts.incoming, accountCounts.outgoing,
+                accountCounts.lastActivityAt == null ? null : Timestamp.valueOf(accountCounts.lastActivityAt)});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+    
+    public void recordTransaction(Transaction transaction) {
+        recordTransactions(List.of(transaction));
+    }
+    
+    // Empty for an account that has never had a transaction
+    @Transactional(readOnly = true)
+    public Optional<AccountActivityView> getActivity(String accountNumber) {
+        Optional<Long> accountId = lookupCache.getAccountId(accountNumber);
+        if (!accountId.isPresent()) {
+            throw new RuntimeException("Account not found: " + accountNumber);
+        }
+        return accountActivityRepository.findActivityByAccountId(accountId.get());
+    }
+    
+    @Transactional(readOnly = true)
+    public long getTransactionCount(Long accountId) {
+        return accountActivityRepository.sumTransactionCount(accountId);
+    }
+    
+    // Recounts every account's counters from the transactions table to repair drift. The account id range
+    // is split into one contiguous partition per worker; each worker recounts its partition in chunks,
+    // one database transaction per chunk. Returns the number of accounts with any transactions.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuild(int partitions) {
+        if (partitions < 1 || partitions > maxPartitions) {
+            throw new RuntimeException("Partitions must be between 1 and " + maxPartitions);
+        }
+        Long minId = accountRepository.findMinId();
+        Long maxId = accountRepository.findMaxId();
+        if (minId == null) {
+            return 0;
+        }
+        
+        long partitionSize = (maxId - minId) / partitions + 1;
+        List<Future<Long>> results = new ArrayList<>(partitions);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long from = minId; from <= maxId; from += partitionSize) {
+                long partitionStart = from;
+                long partitionEnd = Math.min(maxId, from + partitionSize - 1);
+                results.add(executor.submit(() -> rebuildPartition(partitionStart, partitionEnd)));
+            }
+            
+            long accounts = 0;
+            for (Future<Long> result : results) {
+                accounts += result.get();
+            }
+            return accounts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while rebuilding account activity");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Account activity rebuild failed: " + e.getCause().getMessage());
+        }
+    }
+    
+    private long rebuildPartition(long fromId, long toId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long accounts = 0;
+        for (long chunkStart = fromId; chunkStart <= toId; chunkStart += rebuildChunkSize) {
+            long chunkEnd = Math.min(toId, chunkStart + rebuildChunkSize - 1);
+            long start = chunkStart;
+            accounts += transactionTemplate.execute(status -> {
+                accountActivityRepository.deleteActivityBetween(start, chunkEnd);
+                return accountActivityRepository.insertActivityFromTransactions(start, chunkEnd);
+            });
+        }
+        return accounts;
+    }
+    
+    private static class Counts {
+        private long incoming;
+        private long outgoing;
+        private LocalDateTime lastActivityAt;
+        
+        private void add(long incoming, long outgoing, LocalDateTime at) {
+            this.incoming += incoming;
+            this.outgoing += outgoing;
+            if (at != null && (lastActivityAt == null || at.isAfter(lastActivityAt))) {
+                lastActivityAt = at;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.AccountBalanceSlot;
+import com.example.bankingsystem.repository.AccountBalanceSlotRepository;
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.util.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// All balance writes go through here. Accounts with balance slots take credits on a random slot row,
+// so concurrent deposits into one collection account no longer queue on the account row.
+// Debits stay on the account row and sweep the slots into it when the row alone cannot cover them.
+@Service
+@Transactional
+public class AccountBalanceService {
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    @Autowired
+    private AccountBalanceSlotRepository accountBalanceSlotRepository;
+    
+    @Autowired
+    private AccountLockManager accountLockManager;
+    
+    @Value("${banking.balance-slots.max:64}")
+    private int maxBalanceSlots;
+    
+    // Zero for ordinary accounts and for accounts that are missing or not active
+    public int getBalanceSlots(Long accountId) {
+        return accountRepository.findBalanceSlotsOfActiveAccount(accountId).orElse(0);
+    }
+    
+    public boolean credit(Long accountId, int balanceSlots, Money amount, LocalDateTime now) {
+        if (balanceSlots > 0) {
+            int slotIndex = ThreadLocalRandom.current().nextInt(balanceSlots);
+            if (accountBalanceSlotRepository.creditSlot(accountId, slotIndex, amount.toBigDecimal()) == 1) {
+                return true;
+            }
+        }
+        return accountRepository.creditActiveAccount(accountId, amount.toBigDecimal(), now) == 1;
+    }
+    
+    public boolean debit(Long accountId, Money amount, LocalDateTime now) {
+        if (accountRepository.debitActiveAccount(accountId, amount.toBigDecimal(), now) == 1) {
+            return true;
+        }
+        // The failed update already holds the account row, so slots are always locked after it
+        if (sweepSlots(accountId, now).isZero()) {
+            return false;
+        }
+        return accountRepository.debitActiveAccount(accountId, amount.toBigDecimal(), now) == 1;
+    }
+    
+    // Moves everything held in the slots back onto the account row and returns the amount moved
+    public Money sweepSlots(Long accountId, LocalDateTime now) {
+        Money swept = Money.of(accountBalanceSlotRepository.sumBalancesForUpdate(accountId));
+        if (swept.isZero()) {
+            return Money.ZERO;
+        }
+        accountBalanceSlotRepository.clearBalances(accountId);
+        accountRepository.addToBalance(accountId, swept.toBigDecimal(), now);
+        return swept;
+    }
+    
+    public void configureBalanceSlots(Long accountId, int balanceSlots) {
+        if (balanceSlots < 0 || balanceSlots > maxBalanceSlots) {
+            throw new RuntimeException("Balance slots must be between 0 and " + maxBalanceSlots);
+        }
+        
+        accountLockManager.lockForTransaction(accountId);
+        if (accountRepository.updateBalanceSlots(accountId, balanceSlots) == 0) {
+            throw new RuntimeException("Account not found with id: " + accountId);
+        }
+        
+        // Start from an empty set of slots; slot rows beyond the new count simply stay at zero
+        sweepSlots(accountId, LocalDateTime.now());
+        
+        Set<Integer> existing = new HashSet<>(accountBalanceSlotRepository.findSlotIndexesByAccountId(accountId));
+        List<AccountBalanceSlot> missing = new ArrayList<>();
+        for (int slotIndex = 0; slotIndex < balanceSlots; slotIndex++) {
+            if (!existing.contains(slotIndex)) {
+                missing.add(new AccountBalanceSlot(accountRepository.getReferenceById(accountId), slotIndex));
+            }
+        }
+        accountBalanceSlotRepository.saveAll(missing);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bankingsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class AccountLockManager {
+    
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+    
+    public AccountLockManager(@Value("${banking.account-lock.stripes:1024}") int stripeCount,
+                              @Value("${banking.account-lock.timeout-ms:5000}") long timeoutMillis) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    // Held until the transaction completes, so the in-memory lock always outlives the row locks
+    public void lockForTransaction(Long... accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Account locks require an active transaction");
+        }
+        
+        List<ReentrantLock> acquired = acquire(accountIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(acquired);
+            }
+        });
+    }
+    
+    // Stripes are always taken in ascending order, so two callers can never wait on each other
+    public List<ReentrantLock> acquire(Long... accountIds) {
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (Long accountId : accountIds) {
+            stripeIndexes.add(stripeFor(accountId));
+        }
+        
+        List<ReentrantLock> acquired = new ArrayList<>(stripeIndexes.size());
+        try {
+            for (int index : stripeIndexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Timed out waiting for account lock");
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(acquired);
+            throw new RuntimeException("Interrupted while waiting for account lock");
+        } catch (RuntimeException e) {
+            release(acquired);
+            throw e;
+        }
+        return acquired;
+    }
+    
+    public void release(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+    
+    private int stripeFor(Long accountId) {
+        if (accountId == null) {
+            throw new IllegalArgumentException("Account id is required for locking");
+        }
+        // Spread sequential ids so neighbouring accounts do not share a stripe
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) ((h ^ (h >>> 32)) & 0x7fffffff) % stripes.length;
+    }
+}
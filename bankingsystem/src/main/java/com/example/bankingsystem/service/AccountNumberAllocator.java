@@ -0,0 +1,73 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.AccountNumberRange;
+import com.example.bankingsystem.repository.AccountNumberRangeRepository;
+import com.example.bankingsystem.util.AccountNumbers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Component
+public class AccountNumberAllocator {
+    
+    private static final String RANGE_NAME = "accounts";
+    
+    private final ConcurrentLinkedQueue<String> available = new ConcurrentLinkedQueue<>();
+    
+    @Autowired
+    private AccountNumberRangeRepository accountNumberRangeRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.account-number.block-size:100}")
+    private int blockSize;
+    
+    private boolean seeded;
+    
+    public String nextAccountNumber() {
+        String accountNumber = available.poll();
+        while (accountNumber == null) {
+            reserveBlock();
+            accountNumber = available.poll();
+        }
+        return accountNumber;
+    }
+    
+    private synchronized void reserveBlock() {
+        if (!available.isEmpty()) {
+            return;
+        }
+        
+        // Committed on its own, so a rolled back account creation only leaves a gap in the range
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // The row is created in a transaction of its own; creating it under the locking read below would let two
+        // nodes booting on an empty table both miss the row and then collide or deadlock inserting it
+        if (!seeded) {
+            transactionTemplate.executeWithoutResult(status ->
+                accountNumberRangeRepository.insertIfAbsent(RANGE_NAME, AccountNumbers.FIRST_SEQUENCE));
+            seeded = true;
+        }
+        Long first = transactionTemplate.execute(status -> {
+            AccountNumberRange range = accountNumberRangeRepository.findByRangeName(RANGE_NAME)
+                .orElseThrow(() -> new RuntimeException("Account number range not found: " + RANGE_NAME));
+            long start = range.getNextValue();
+            if (start + blockSize - 1 > AccountNumbers.LAST_SEQUENCE) {
+                throw new RuntimeException("Account number range is exhausted");
+            }
+            range.setNextValue(start + blockSize);
+            accountNumberRangeRepository.save(range);
+            return start;
+        });
+        
+        for (long sequence = first; sequence < first + blockSize; sequence++) {
+            available.add(AccountNumbers.fromSequence(sequence));
+        }
+    }
+}
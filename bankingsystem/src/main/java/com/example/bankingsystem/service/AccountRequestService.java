@@ -4,7 +4,12 @@ import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.AccountRequest;
 import com.example.bankingsystem.entity.User;
 import com.example.bankingsystem.repository.AccountRequestRepository;
+import com.example.bankingsystem.util.Money;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,65 +30,113 @@ public class AccountRequestService {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PendingRequestCounter pendingRequestCounter;
+    
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    
+    @Value("${banking.account-requests.claim-lease-seconds:600}")
+    private long claimLeaseSeconds;
+    
+    @Value("${banking.account-requests.max-claim:20}")
+    private int maxClaim;
+    
     public AccountRequest createAccountRequest(AccountRequest accountRequest) {
         validateAccountRequest(accountRequest);
-        return accountRequestRepository.save(accountRequest);
+        accountRequest.setRequestId(snowflakeIdGenerator.nextId(AccountRequest.REQUEST_ID_PREFIX));
+        AccountRequest savedRequest = accountRequestRepository.save(accountRequest);
+        pendingRequestCounter.onStatusChange(null, savedRequest.getStatus());
+        return savedRequest;
     }
     
+    @Transactional(readOnly = true)
     public Optional<AccountRequest> getAccountRequestById(Long id) {
         return accountRequestRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public Optional<AccountRequest> getAccountRequestByRequestId(String requestId) {
         return accountRequestRepository.findByRequestId(requestId);
     }
     
+    @Transactional(readOnly = true)
     public List<AccountRequest> getAccountRequestsByUser(User user) {
         return accountRequestRepository.findByUser(user);
     }
     
+    @Transactional(readOnly = true)
     public List<AccountRequest> getAccountRequestsByUserId(Long userId) {
         return accountRequestRepository.findByUserId(userId);
     }
     
-    public List<AccountRequest> getAllAccountRequests() {
-        return accountRequestRepository.findAll();
+    // Up to limit requests with an id below beforeId (all ids when null), newest first
+    @Transactional(readOnly = true)
+    public List<AccountRequest> listAccountRequests(AccountRequest.RequestStatus status, LocalDateTime startDate,
+                                                    LocalDateTime endDate, Long beforeId, int limit) {
+        return accountRequestRepository.findRequestsBefore(status, startDate, endDate, beforeId, PageRequest.of(0, limit));
     }
     
+    @Transactional(readOnly = true)
     public List<AccountRequest> getAccountRequestsByStatus(AccountRequest.RequestStatus status) {
         return accountRequestRepository.findByStatus(status);
     }
     
+    // Requests claimed by a staff member stay out of this list until they are released or the claim expires
+    @Transactional(readOnly = true)
     public List<AccountRequest> getPendingAccountRequests() {
-        return accountRequestRepository.findPendingRequestsOrderByCreatedDate();
+        return accountRequestRepository.findUnclaimedPendingRequests(LocalDateTime.now());
     }
     
-    public AccountRequest approveAccountRequest(Long requestId, Long staffId, String comments) {
-        Optional<AccountRequest> requestOpt = accountRequestRepository.findById(requestId);
-        if (!requestOpt.isPresent()) {
-            throw new RuntimeException("Account request not found with id: " + requestId);
+    // Assigns up to count of the oldest unclaimed pending requests to the staff member for the lease period.
+    // Staff claiming at the same time each get different requests, and a claim nobody acts on lapses by itself.
+    public List<AccountRequest> claimPendingRequests(Long staffId, int count) {
+        User staff = getStaff(staffId, "claim");
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = accountRequestRepository.lockClaimableRequestIds(now, Math.max(1, Math.min(count, maxClaim)));
+        if (ids.isEmpty()) {
+            return List.of();
         }
         
-        AccountRequest request = requestOpt.get();
+        List<AccountRequest> requests = accountRequestRepository.findByIdIn(ids);
+        LocalDateTime expiresAt = now.plusSeconds(claimLeaseSeconds);
+        for (AccountRequest request : requests) {
+            request.setClaimedByStaff(staff);
+            request.setClaimExpiresAt(expiresAt);
+        }
+        return requests;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<AccountRequest> getClaimedRequests(Long staffId) {
+        return accountRequestRepository.findClaimedBy(getStaff(staffId, "claim"), LocalDateTime.now());
+    }
+    
+    public AccountRequest releaseClaim(Long requestId, Long staffId) {
+        AccountRequest request = lockRequest(requestId);
+        if (!isClaimedBy(request, staffId, LocalDateTime.now())) {
+            throw new RuntimeException("Account request is not claimed by staff member: " + staffId);
+        }
+        request.setClaimedByStaff(null);
+        request.setClaimExpiresAt(null);
+        return accountRequestRepository.save(request);
+    }
+    
+    public AccountRequest approveAccountRequest(Long requestId, Long staffId, String comments) {
+        // Locked so two staff members acting on the same request at once cannot both succeed
+        AccountRequest request = lockRequest(requestId);
         if (request.getStatus() != AccountRequest.RequestStatus.PENDING) {
             throw new RuntimeException("Only pending requests can be approved");
         }
+        checkNotClaimedByOthers(request, staffId);
         
-        Optional<User> staffOpt = userService.getUserById(staffId);
-        if (!staffOpt.isPresent()) {
-            throw new RuntimeException("Staff member not found with id: " + staffId);
-        }
-        
-        User staff = staffOpt.get();
-        if (staff.getRole() != User.UserRole.STAFF && staff.getRole() != User.UserRole.ADMIN) {
-            throw new RuntimeException("Only staff members can approve requests");
-        }
+        User staff = getStaff(staffId, "approve");
         
         try {
             // Create the account
             Account newAccount = new Account();
             newAccount.setAccountType(request.getAccountType());
-            newAccount.setBalance(request.getInitialDeposit());
+            newAccount.setBalance(Money.of(request.getInitialDeposit()));
             newAccount.setUser(request.getUser());
             newAccount.setStatus(Account.AccountStatus.ACTIVE);
             
@@ -95,8 +148,12 @@ public class AccountRequestService {
             request.setProcessedAt(LocalDateTime.now());
             request.setStaffComments(comments);
             request.setCreatedAccount(createdAccount);
+            request.setClaimedByStaff(null);
+            request.setClaimExpiresAt(null);
             
-            return accountRequestRepository.save(request);
+            AccountRequest savedRequest = accountRequestRepository.save(request);
+            pendingRequestCounter.onStatusChange(AccountRequest.RequestStatus.PENDING, savedRequest.getStatus());
+            return savedRequest;
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to approve account request: " + e.getMessage());
@@ -105,59 +162,57 @@ public class AccountRequestService {
     
     public AccountRequest rejectAccountRequest(Long requestId, Long staffId, 
                                              String rejectionReason, String comments) {
-        Optional<AccountRequest> requestOpt = accountRequestRepository.findById(requestId);
-        if (!requestOpt.isPresent()) {
-            throw new RuntimeException("Account request not found with id: " + requestId);
-        }
-        
-        AccountRequest request = requestOpt.get();
+        AccountRequest request = lockRequest(requestId);
         if (request.getStatus() != AccountRequest.RequestStatus.PENDING) {
             throw new RuntimeException("Only pending requests can be rejected");
         }
+        checkNotClaimedByOthers(request, staffId);
         
-        Optional<User> staffOpt = userService.getUserById(staffId);
-        if (!staffOpt.isPresent()) {
-            throw new RuntimeException("Staff member not found with id: " + staffId);
-        }
-        
-        User staff = staffOpt.get();
-        if (staff.getRole() != User.UserRole.STAFF && staff.getRole() != User.UserRole.ADMIN) {
-            throw new RuntimeException("Only staff members can reject requests");
-        }
+        User staff = getStaff(staffId, "reject");
         
         request.setStatus(AccountRequest.RequestStatus.REJECTED);
         request.setProcessedByStaff(staff);
         request.setProcessedAt(LocalDateTime.now());
         request.setRejectionReason(rejectionReason);
         request.setStaffComments(comments);
+        request.setClaimedByStaff(null);
+        request.setClaimExpiresAt(null);
         
-        return accountRequestRepository.save(request);
+        AccountRequest savedRequest = accountRequestRepository.save(request);
+        pendingRequestCounter.onStatusChange(AccountRequest.RequestStatus.PENDING, savedRequest.getStatus());
+        return savedRequest;
     }
     
     public AccountRequest updateRequestStatus(Long requestId, AccountRequest.RequestStatus status) {
         Optional<AccountRequest> requestOpt = accountRequestRepository.findById(requestId);
         if (requestOpt.isPresent()) {
             AccountRequest request = requestOpt.get();
+            AccountRequest.RequestStatus previous = request.getStatus();
             request.setStatus(status);
-            return accountRequestRepository.save(request);
+            AccountRequest savedRequest = accountRequestRepository.save(request);
+            pendingRequestCounter.onStatusChange(previous, status);
+            return savedRequest;
         }
         throw new RuntimeException("Account request not found with id: " + requestId);
     }
     
+    @Transactional(readOnly = true)
     public List<AccountRequest> getRequestsByStatusAndDateRange(AccountRequest.RequestStatus status,
                                                               LocalDateTime startDate,
                                                               LocalDateTime endDate) {
         return accountRequestRepository.findRequestsByStatusAndDateRange(status, startDate, endDate);
     }
     
+    @Transactional(readOnly = true)
     public long getPendingRequestCountByUser(User user) {
         return accountRequestRepository.countPendingRequestsByUser(user);
     }
     
     public long getAllPendingRequestCount() {
-        return accountRequestRepository.countAllPendingRequests();
+        return pendingRequestCounter.getPendingCount();
     }
     
+    @Transactional(readOnly = true)
     public List<AccountRequest> getRequestsProcessedByStaff(User staff, 
                                                           LocalDateTime startDate,
                                                           LocalDateTime endDate) {
@@ -177,6 +232,47 @@ public class AccountRequestService {
         }
     }
     
+    // The row lock cannot be combined with the details graph, so the people on the request are loaded here;
+    // the request is serialized after the session closes
+    private AccountRequest lockRequest(Long requestId) {
+        Optional<AccountRequest> requestOpt = accountRequestRepository.findByIdForUpdate(requestId);
+        if (!requestOpt.isPresent()) {
+            throw new RuntimeException("Account request not found with id: " + requestId);
+        }
+        AccountRequest request = requestOpt.get();
+        Hibernate.initialize(request.getUser());
+        Hibernate.initialize(request.getProcessedByStaff());
+        Hibernate.initialize(request.getClaimedByStaff());
+        return request;
+    }
+    
+    private User getStaff(Long staffId, String action) {
+        Optional<User> staffOpt = userService.getUserById(staffId);
+        if (!staffOpt.isPresent()) {
+            throw new RuntimeException("Staff member not found with id: " + staffId);
+        }
+        
+        User staff = staffOpt.get();
+        if (staff.getRole() != User.UserRole.STAFF && staff.getRole() != User.UserRole.ADMIN) {
+            throw new RuntimeException("Only staff members can " + action + " requests");
+        }
+        return staff;
+    }
+    
+    private void checkNotClaimedByOthers(AccountRequest request, Long staffId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (request.getClaimExpiresAt() != null && !request.getClaimExpiresAt().isBefore(now)
+                && !isClaimedBy(request, staffId, now)) {
+            throw new RuntimeException("Account request is claimed by another staff member until "
+                + request.getClaimExpiresAt());
+        }
+    }
+    
+    private boolean isClaimedBy(AccountRequest request, Long staffId, LocalDateTime now) {
+        return request.getClaimedByStaff() != null && request.getClaimedByStaff().getId().equals(staffId)
+            && request.getClaimExpiresAt() != null && !request.getClaimExpiresAt().isBefore(now);
+    }
+    
     private void validateAccountRequest(AccountRequest accountRequest) {
         if (accountRequest.getUser() == null) {
             throw new RuntimeException("Account request must be associated with a user");
@@ -190,7 +286,8 @@ public class AccountRequestService {
             throw new RuntimeException("Initial deposit cannot be negative");
         }
         
-        // Check if user has too many pending requests
+        // Check if user has too many pending requests; counted in the database, because the in-memory total
+        // can be briefly off and this limit must hold exactly
         long pendingCount = accountRequestRepository.countPendingRequestsByUser(accountRequest.getUser());
         if (pendingCount >= 3) {
             throw new RuntimeException("User has too many pending account requests");
@@ -1,14 +1,18 @@
 package com.example.bankingsystem.service;
 
+import com.example.bankingsystem.dto.AccountView;
 import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.User;
 import com.example.bankingsystem.repository.AccountRepository;
 import com.example.bankingsystem.repository.UserRepository;
+import com.example.bankingsystem.util.AccountNumbers;
+import com.example.bankingsystem.util.Money;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,45 +26,82 @@ public class AccountService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private AccountLockManager accountLockManager;
+    
+    @Autowired
+    private AccountNumberAllocator accountNumberAllocator;
+    
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private LookupCache lookupCache;
+    
     public Account createAccount(Account account) {
         validateAccountCreation(account);
-        return accountRepository.save(account);
+        // Account numbers are always assigned by the bank, never taken from the request
+        account.setAccountNumber(accountNumberAllocator.nextAccountNumber());
+        Account savedAccount = accountRepository.save(account);
+        if (savedAccount.getBalance().isPositive()) {
+            // The opening balance comes in from cash like any other deposit
+            ledgerService.recordMovement(null, null, savedAccount.getId(), savedAccount.getBalance());
+        }
+        return withUser(savedAccount);
     }
     
+    @Transactional(readOnly = true)
     public Optional<Account> getAccountById(Long id) {
-        return accountRepository.findById(id);
+        return accountRepository.findById(id).map(this::withUser);
     }
     
+    @Transactional(readOnly = true)
     public Optional<Account> getAccountByAccountNumber(String accountNumber) {
-        return accountRepository.findByAccountNumber(accountNumber);
+        return accountRepository.findByAccountNumber(accountNumber).map(this::withUser);
     }
     
+    @Transactional(readOnly = true)
     public List<Account> getAccountsByUser(User user) {
         return accountRepository.findByUser(user);
     }
     
+    @Transactional(readOnly = true)
     public List<Account> getAccountsByUserId(Long userId) {
         return accountRepository.findByUserId(userId);
     }
     
+    // The phone number is resolved to its user once; accounts are then read by the indexed user id
+    @Transactional(readOnly = true)
     public List<Account> getAccountsByPhoneNumber(String phoneNumber) {
-        return accountRepository.findByUserPhoneNumber(phoneNumber);
+        Optional<Long> userId = userRepository.findIdByPhoneNumber(phoneNumber);
+        return userId.isPresent() ? accountRepository.findByUserId(userId.get()) : List.of();
     }
     
+    @Transactional(readOnly = true)
     public List<Account> getActiveAccountsByPhoneNumber(String phoneNumber) {
-        return accountRepository.findActiveAccountsByUserPhoneNumber(phoneNumber);
+        Optional<Long> userId = userRepository.findIdByPhoneNumber(phoneNumber);
+        return userId.isPresent() ? accountRepository.findActiveAccountsByUserId(userId.get()) : List.of();
     }
     
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    // Up to limit accounts with an id below beforeId (all ids when null), newest first
+    @Transactional(readOnly = true)
+    public List<AccountView> listAccounts(Account.AccountStatus status, Account.AccountType accountType,
+                                          Long beforeId, int limit) {
+        return accountRepository.findViewsBefore(status == null ? null : status.name(),
+            accountType == null ? null : accountType.name(), beforeId, limit);
     }
     
-    public List<Account> getAccountsByStatus(Account.AccountStatus status) {
-        return accountRepository.findByStatus(status);
+    @Transactional(readOnly = true)
+    public List<AccountView> getAccountsByStatus(Account.AccountStatus status) {
+        return accountRepository.findViewsByStatus(status.name());
     }
     
-    public List<Account> getAccountsByType(Account.AccountType accountType) {
-        return accountRepository.findByAccountType(accountType);
+    @Transactional(readOnly = true)
+    public List<AccountView> getAccountsByType(Account.AccountType accountType) {
+        return accountRepository.findViewsByAccountType(accountType.name());
     }
     
     public Account updateAccountStatus(Long accountId, Account.AccountStatus status) {
@@ -68,46 +109,50 @@ public class AccountService {
         if (accountOpt.isPresent()) {
             Account account = accountOpt.get();
             account.setStatus(status);
-            return accountRepository.save(account);
+            return withUser(accountRepository.save(account));
         }
         throw new RuntimeException("Account not found with id: " + accountId);
     }
     
-    public Account depositMoney(String accountNumber, BigDecimal amount) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
-            Account account = accountOpt.get();
-            if (account.getStatus() != Account.AccountStatus.ACTIVE) {
-                throw new RuntimeException("Account is not active");
-            }
-            
-            BigDecimal newBalance = account.getBalance().add(amount);
-            account.setBalance(newBalance);
-            return accountRepository.save(account);
+    public Account depositMoney(String accountNumber, Money amount) {
+        Long accountId = getAccountId(accountNumber);
+        
+        // Deposits into an account with balance slots land on a slot row and skip the account lock
+        int balanceSlots = accountBalanceService.getBalanceSlots(accountId);
+        if (balanceSlots == 0) {
+            accountLockManager.lockForTransaction(accountId);
         }
-        throw new RuntimeException("Account not found with account number: " + accountNumber);
+        if (!accountBalanceService.credit(accountId, balanceSlots, amount, LocalDateTime.now())) {
+            throw new RuntimeException("Account is not active");
+        }
+        ledgerService.recordMovement(null, null, accountId, amount);
+        return withUser(accountRepository.findById(accountId).get());
     }
     
-    public Account withdrawMoney(String accountNumber, BigDecimal amount) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
-            Account account = accountOpt.get();
-            if (account.getStatus() != Account.AccountStatus.ACTIVE) {
+    public Account withdrawMoney(String accountNumber, Money amount) {
+        Long accountId = getAccountId(accountNumber);
+        accountLockManager.lockForTransaction(accountId);
+        
+        // The update only matches an active account that can cover the amount
+        if (!accountBalanceService.debit(accountId, amount, LocalDateTime.now())) {
+            Optional<Account.AccountStatus> status = accountRepository.findStatusById(accountId);
+            if (status.isPresent() && status.get() != Account.AccountStatus.ACTIVE) {
                 throw new RuntimeException("Account is not active");
             }
-            
-            if (account.getBalance().compareTo(amount) < 0) {
-                throw new RuntimeException("Insufficient balance");
-            }
-            
-            BigDecimal newBalance = account.getBalance().subtract(amount);
-            account.setBalance(newBalance);
-            return accountRepository.save(account);
+            throw new RuntimeException("Insufficient balance");
         }
-        throw new RuntimeException("Account not found with account number: " + accountNumber);
+        ledgerService.recordMovement(null, accountId, null, amount);
+        return withUser(accountRepository.findById(accountId).get());
     }
     
-    public BigDecimal getAccountBalance(String accountNumber) {
+    public Account updateBalanceSlots(Long accountId, int balanceSlots) {
+        accountBalanceService.configureBalanceSlots(accountId, balanceSlots);
+        return withUser(accountRepository.findById(accountId).get());
+    }
+    
+    // Includes whatever sits in the balance slots of a sharded account
+    @Transactional(readOnly = true)
+    public Money getAccountBalance(String accountNumber) {
         Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
         if (accountOpt.isPresent()) {
             return accountOpt.get().getBalance();
@@ -119,7 +164,7 @@ public class AccountService {
         Optional<Account> accountOpt = accountRepository.findById(accountId);
         if (accountOpt.isPresent()) {
             Account account = accountOpt.get();
-            if (account.getBalance().compareTo(BigDecimal.ZERO) > 0) {
+            if (account.getBalance().isPositive()) {
                 throw new RuntimeException("Cannot delete account with positive balance");
             }
             account.setStatus(Account.AccountStatus.CLOSED);
@@ -129,24 +174,47 @@ public class AccountService {
         }
     }
     
+    @Transactional(readOnly = true)
     public long getAccountCountByUser(User user) {
         return accountRepository.countAccountsByUser(user);
     }
     
+    @Transactional(readOnly = true)
     public List<Account> getActiveAccountsByUser(User user) {
         return accountRepository.findActiveAccountsByUser(user);
     }
     
+    @Transactional(readOnly = true)
     public boolean existsByAccountNumber(String accountNumber) {
+        if (!AccountNumbers.isWellFormed(accountNumber)) {
+            return false;
+        }
         return accountRepository.existsByAccountNumber(accountNumber);
     }
     
+    // The user is part of every account response, and responses are written after the session has closed
+    private Account withUser(Account account) {
+        Hibernate.initialize(account.getUser());
+        return account;
+    }
+    
+    private Long getAccountId(String accountNumber) {
+        if (!AccountNumbers.isWellFormed(accountNumber)) {
+            throw new RuntimeException("Invalid account number: " + accountNumber);
+        }
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (!accountIdOpt.isPresent()) {
+            throw new RuntimeException("Account not found with account number: " + accountNumber);
+        }
+        return accountIdOpt.get();
+    }
+    
     private void validateAccountCreation(Account account) {
         if (account.getUser() == null) {
             throw new RuntimeException("Account must be associated with a user");
         }
         
-        if (account.getBalance().compareTo(BigDecimal.ZERO) < 0) {
+        if (account.getBalance() == null || account.getBalance().isNegative()) {
             throw new RuntimeException("Initial balance cannot be negative");
         }
         
@@ -0,0 +1,213 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.exception.QueueFullException;
+import com.example.bankingsystem.repository.TransactionRepository;
+import com.example.bankingsystem.util.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+// Accepted transfers are stored as PENDING and executed by virtual-thread workers, so request threads
+// never wait on account locks or slow statements. The queue is bounded; when it is full new transfers
+// are refused instead of piling up.
+@Service
+public class AsyncTransferService {
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    private final LinkedBlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    private final Semaphore capacity;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    // Ids that are queued or being executed, so the re-scan never queues a transfer twice
+    private final Set<Long> tracked = ConcurrentHashMap.newKeySet();
+    private final int workerCount;
+    private final long emitterTimeoutMillis;
+    
+    public AsyncTransferService(@Value("${banking.async-transfer.queue-capacity:1000}") int queueCapacity,
+                                @Value("${banking.async-transfer.workers:32}") int workerCount,
+                                @Value("${banking.async-transfer.emitter-timeout-ms:60000}") long emitterTimeoutMillis) {
+        this.capacity = new Semaphore(queueCapacity);
+        this.workerCount = workerCount;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+    
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("transfer-worker-" + i).start(this::drain));
+        }
+    }
+    
+    public Transaction submit(String fromAccountNumber, String toIdentifier, Money amount,
+                              String description, boolean isPhoneNumber) {
+        // Reserve the queue slot first so a refused transfer never leaves a PENDING row behind
+        if (!capacity.tryAcquire()) {
+            throw new QueueFullException("Transfer queue is full, please retry later");
+        }
+        try {
+            Transaction transaction = transactionService.createPendingTransfer(
+                fromAccountNumber, toIdentifier, amount, description, isPhoneNumber);
+            Long id = transaction.getId();
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                enqueueReserved(id);
+                return transaction;
+            }
+            // Inside a caller's transaction (an idempotent request) the row is not visible to the workers
+            // until that transaction commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        enqueueReserved(id);
+                    } else {
+                        capacity.release();
+                    }
+                }
+            });
+            return transaction;
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+    
+    public SseEmitter subscribe(String transactionId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        subscribers.computeIfAbsent(transactionId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(transactionId, emitter));
+        emitter.onTimeout(() -> unsubscribe(transactionId, emitter));
+        
+        // Registered before the lookup, so a transfer finishing in between is still reported
+        Optional<Transaction> transaction = transactionService.getTransactionByTransactionId(transactionId);
+        if (!transaction.isPresent()) {
+            emitter.completeWithError(new RuntimeException("Transaction not found: " + transactionId));
+        } else if (transaction.get().getStatus() != Transaction.TransactionStatus.PENDING) {
+            send(emitter, transaction.get());
+        }
+        return emitter;
+    }
+    
+    // Transfers left PENDING by a previous run, or that did not fit in the queue last time, are picked up
+    // again as slots free up; the row lock makes a rerun harmless
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${banking.async-transfer.rescan-interval-ms:30000}",
+               fixedDelayString = "${banking.async-transfer.rescan-interval-ms:30000}")
+    public void resumePendingTransfers() {
+        for (Long id : transactionRepository.findPendingTransferIds()) {
+            if (tracked.contains(id)) {
+                continue;
+            }
+            if (!capacity.tryAcquire()) {
+                break;
+            }
+            if (!enqueue(id)) {
+                capacity.release();
+            }
+        }
+    }
+    
+    private void enqueueReserved(Long id) {
+        if (!enqueue(id)) {
+            // A re-scan saw the new row first and already queued it on its own slot
+            capacity.release();
+        }
+    }
+    
+    private boolean enqueue(Long id) {
+        if (!tracked.add(id)) {
+            return false;
+        }
+        queue.add(id);
+        return true;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+    
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Long id;
+            try {
+                id = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            capacity.release();
+            
+            Transaction transaction;
+            try {
+                transaction = transactionService.executePendingTransfer(id);
+            } catch (RuntimeException e) {
+                try {
+                    transaction = transactionService.failPendingTransfer(id, e.getMessage());
+                } catch (RuntimeException failure) {
+                    // Stays PENDING and is retried by the next re-scan
+                    System.err.println("Could not mark transfer " + id + " as failed: " + failure.getMessage());
+                    continue;
+                }
+            } finally {
+                tracked.remove(id);
+            }
+            notifySubscribers(transaction);
+        }
+    }
+    
+    private void notifySubscribers(Transaction transaction) {
+        List<SseEmitter> emitters = subscribers.remove(transaction.getTransactionId());
+        if (emitters != null) {
+            for (SseEmitter emitter : emitters) {
+                send(emitter, transaction);
+            }
+        }
+    }
+    
+    private void send(SseEmitter emitter, Transaction transaction) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("transactionId", transaction.getTransactionId());
+        event.put("status", transaction.getStatus());
+        event.put("description", transaction.getDescription());
+        try {
+            emitter.send(SseEmitter.event().name("status").data(event));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away or the emitter was already completed
+        }
+    }
+    
+    private void unsubscribe(String transactionId, SseEmitter emitter) {
+        subscribers.computeIfPresent(transactionId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.BatchTransferResultDto;
+import com.example.bankingsystem.dto.TransferRequestDto;
+import com.example.bankingsystem.entity.Account;
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.repository.TransactionRepository;
+import com.example.bankingsystem.util.AccountNumbers;
+import com.example.bankingsystem.util.Money;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+@Service
+public class BatchTransferService {
+    
+    private static final String LOCK_ACCOUNTS_SQL =
+        "SELECT id, status, balance, balance_slots FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+    
+    private static final String APPLY_DELTA_SQL =
+        "UPDATE accounts SET balance = balance + ?, updated_at = ? WHERE id = ?";
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    
+    @Autowired
+    private AccountLockManager accountLockManager;
+    
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+    
+    @Autowired
+    private AccountActivityService accountActivityService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.batch-transfer.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${banking.batch-transfer.chunk-accounts:64}")
+    private int chunkAccounts;
+    
+    @Value("${banking.batch-transfer.max-items:10000}")
+    private int maxItems;
+    
+    public List<BatchTransferResultDto> transferAll(List<TransferRequestDto> requests) {
+        if (requests.size() > maxItems) {
+            throw new RuntimeException("A batch cannot contain more than " + maxItems + " transfers");
+        }
+        
+        int size = requests.size();
+        BatchTransferResultDto[] results = new BatchTransferResultDto[size];
+        ResolvedTransfer[] resolved = new ResolvedTransfer[size];
+        
+        // All lookups happen up front, so validating the items is pure in-memory work
+        Map<String, Long> accountIds = resolveAccountIds(requests);
+        Map<String, Long> phoneAccountIds = resolvePhoneAccountIds(requests);
+        
+        IntStream.range(0, size).parallel().forEach(i -> {
+            try {
+                resolved[i] = resolve(i, requests.get(i), accountIds, phoneAccountIds);
+            } catch (RuntimeException e) {
+                results[i] = BatchTransferResultDto.failed(i, e.getMessage());
+            }
+        });
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (List<ResolvedTransfer> chunk : chunks(resolved)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(chunk, results));
+            } catch (RuntimeException e) {
+                // The whole chunk rolled back, including items that had already been marked as successful
+                for (ResolvedTransfer transfer : chunk) {
+                    results[transfer.index] = BatchTransferResultDto.failed(transfer.index,
+                        "Batch chunk failed: " + e.getMessage());
+                }
+            }
+        }
+        
+        return Arrays.asList(results);
+    }
+    
+    // A chunk holds the stripe and row locks of every account it touches until it commits, so a chunk is
+    // closed once it reaches chunkAccounts distinct accounts, not only at chunkSize items. Otherwise one
+    // large batch would hold most of the stripes and stall the single transfers hashed onto them.
+    private List<List<ResolvedTransfer>> chunks(ResolvedTransfer[] resolved) {
+        List<List<ResolvedTransfer>> chunks = new ArrayList<>();
+        List<ResolvedTransfer> chunk = new ArrayList<>();
+        Set<Long> accountIds = new HashSet<>();
+        for (ResolvedTransfer transfer : resolved) {
+            if (transfer == null) {
+                continue;
+            }
+            int newAccounts = (accountIds.contains(transfer.fromAccountId) ? 0 : 1)
+                + (accountIds.contains(transfer.toAccountId) ? 0 : 1);
+            if (!chunk.isEmpty() && (chunk.size() >= chunkSize || accountIds.size() + newAccounts > chunkAccounts)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                accountIds = new HashSet<>();
+            }
+            chunk.add(transfer);
+            accountIds.add(transfer.fromAccountId);
+            accountIds.add(transfer.toAccountId);
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+    
+    private void applyChunk(List<ResolvedTransfer> chunk, BatchTransferResultDto[] results) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (ResolvedTransfer transfer : chunk) {
+            ids.add(transfer.fromAccountId);
+            ids.add(transfer.toAccountId);
+        }
+        accountLockManager.lockForTransaction(ids.toArray(new Long[0]));
+        Map<Long, AccountState> accounts = lockAccounts(ids);
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Sources with balance slots are swept first so the replay sees their whole balance.
+        // Credits in a batch simply go to the locked account row.
+        for (ResolvedTransfer transfer : chunk) {
+            AccountState from = accounts.get(transfer.fromAccountId);
+            if (from != null && from.balanceSlots > 0 && !from.swept) {
+                from.balance = from.balance.plus(accountBalanceService.sweepSlots(transfer.fromAccountId, now));
+                from.swept = true;
+            }
+        }
+        
+        // Replay the chunk against the locked balances, then write only the net change per account
+        Map<Long, Money> deltas = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        
+        for (ResolvedTransfer transfer : chunk) {
+            AccountState from = accounts.get(transfer.fromAccountId);
+            AccountState to = accounts.get(transfer.toAccountId);
+            
+            String error = null;
+            if (from == null || !from.active) {
+                error = "Source account is not active";
+            } else if (from.balance.isLessThan(transfer.amount)) {
+                error = "Insufficient balance in source account";
+            } else if (to == null || !to.active) {
+                error = "Destination account is not active";
+            }
+            if (error != null) {
+                results[transfer.index] = BatchTransferResultDto.failed(transfer.index, error);
+                continue;
+            }
+            
+            from.balance = from.balance.minus(transfer.amount);
+            to.balance = to.balance.plus(transfer.amount);
+            deltas.merge(transfer.fromAccountId, transfer.amount.negate(), Money::plus);
+            deltas.merge(transfer.toAccountId, transfer.amount, Money::plus);
+            
+            String transactionId = snowflakeIdGenerator.nextId(Transaction.TRANSACTION_ID_PREFIX);
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId(transactionId);
+            transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
+            transaction.setAmount(transfer.amount);
+            transaction.setDescription(transfer.description);
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setFromAccount(accountRepository.getReferenceById(transfer.fromAccountId));
+            transaction.setToAccount(accountRepository.getReferenceById(transfer.toAccountId));
+            if (transfer.phoneNumber) {
+                transaction.setRecipientPhone(transfer.toIdentifier);
+            } else {
+                transaction.setRecipientAccountNumber(transfer.toIdentifier);
+            }
+            transactions.add(transaction);
+            results[transfer.index] = BatchTransferResultDto.succeeded(transfer.index, transactionId);
+        }
+        
+        List<Object[]> deltaRows = new ArrayList<>(deltas.size());
+        for (Map.Entry<Long, Money> delta : deltas.entrySet()) {
+            if (!delta.getValue().isZero()) {
+                deltaRows.add(new Object[] {delta.getValue().toBigDecimal(), Timestamp.valueOf(now), delta.getKey()});
+            }
+        }
+        
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, deltaRows);
+        // Ids come from the pooled generator, so Hibernate sends these inserts as JDBC batches
+        transactionRepository.saveAll(transactions);
+        ledgerService.recordTransactions(transactions);
+        transactionRollupService.recordTransactions(transactions);
+        accountActivityService.recordTransactions(transactions);
+    }
+    
+    private Map<Long, AccountState> lockAccounts(Set<Long> ids) {
+        Map<Long, AccountState> accounts = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_ACCOUNTS_SQL, Map.of("ids", ids), rs -> {
+            AccountState state = new AccountState();
+            state.active = Account.AccountStatus.ACTIVE.name().equals(rs.getString("status"));
+            state.balance = Money.of(rs.getBigDecimal("balance"));
+            state.balanceSlots = rs.getInt("balance_slots");
+            accounts.put(rs.getLong("id"), state);
+        });
+        return accounts;
+    }
+    
+    private ResolvedTransfer resolve(int index, TransferRequestDto request,
+                                     Map<String, Long> accountIds, Map<String, Long> phoneAccountIds) {
+        if (request == null) {
+            throw new RuntimeException("Transfer instruction is required");
+        }
+        if (request.getFromAccountNumber() == null || request.getFromAccountNumber().trim().isEmpty()) {
+            throw new RuntimeException("From account number is required");
+        }
+        if (request.getToIdentifier() == null || request.getToIdentifier().trim().isEmpty()) {
+            throw new RuntimeException("To identifier is required");
+        }
+        if (request.getAmount() == null || !request.getAmount().isPositive()) {
+            throw new RuntimeException("Amount must be positive");
+        }
+        
+        if (!AccountNumbers.isWellFormed(request.getFromAccountNumber())) {
+            throw new RuntimeException("Invalid source account number: " + request.getFromAccountNumber());
+        }
+        if (!request.isPhoneNumber() && !AccountNumbers.isWellFormed(request.getToIdentifier())) {
+            throw new RuntimeException("Invalid destination account number: " + request.getToIdentifier());
+        }
+        
+        Long fromAccountId = accountIds.get(request.getFromAccountNumber());
+        if (fromAccountId == null) {
+            throw new RuntimeException("Source account not found: " + request.getFromAccountNumber());
+        }
+        
+        Long toAccountId;
+        if (request.isPhoneNumber()) {
+            toAccountId = phoneAccountIds.get(request.getToIdentifier());
+            if (toAccountId == null) {
+                throw new RuntimeException("No active account found for phone number: " + request.getToIdentifier());
+            }
+        } else {
+            toAccountId = accountIds.get(request.getToIdentifier());
+            if (toAccountId == null) {
+                throw new RuntimeException("Destination account not found: " + request.getToIdentifier());
+            }
+        }
+        
+        if (fromAccountId.equals(toAccountId)) {
+            throw new RuntimeException("Cannot transfer money to the same account");
+        }
+        
+        ResolvedTransfer transfer = new ResolvedTransfer();
+        transfer.index = index;
+        transfer.fromAccountId = fromAccountId;
+        transfer.toAccountId = toAccountId;
+        transfer.amount = request.getAmount();
+        transfer.toIdentifier = request.getToIdentifier();
+        transfer.phoneNumber = request.isPhoneNumber();
+        transfer.description = request.getDescription() == null || request.getDescription().trim().isEmpty()
+            ? "Money transfer" : request.getDescription();
+        return transfer;
+    }
+    
+    private Map<String, Long> resolveAccountIds(List<TransferRequestDto> requests) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (TransferRequestDto request : requests) {
+            if (request == null) {
+                continue;
+            }
+            // Mistyped numbers are rejected during validation and never reach the lookup
+            if (AccountNumbers.isWellFormed(request.getFromAccountNumber())) {
+                accountNumbers.add(request.getFromAccountNumber());
+            }
+            if (!request.isPhoneNumber() && AccountNumbers.isWellFormed(request.getToIdentifier())) {
+                accountNumbers.add(request.getToIdentifier());
+            }
+        }
+        
+        Map<String, Long> ids = new HashMap<>();
+        for (List<String> part : partition(accountNumbers)) {
+            for (Object[] row : accountRepository.findIdsByAccountNumberIn(part)) {
+                ids.put((String) row[0], (Long) row[1]);
+            }
+        }
+        return ids;
+    }
+    
+    private Map<String, Long> resolvePhoneAccountIds(List<TransferRequestDto> requests) {
+        Set<String> phoneNumbers = new HashSet<>();
+        for (TransferRequestDto request : requests) {
+            if (request != null && request.isPhoneNumber() && request.getToIdentifier() != null) {
+                phoneNumbers.add(request.getToIdentifier());
+            }
+        }
+        
+        Map<String, Long> ids = new HashMap<>();
+        for (List<String> part : partition(phoneNumbers)) {
+            for (Object[] row : accountRepository.findFirstActiveAccountIdsByUserPhoneNumberIn(part)) {
+                ids.put((String) row[0], (Long) row[1]);
+            }
+        }
+        return ids;
+    }
+    
+    private List<List<String>> partition(Set<String> values) {
+        List<String> all = new ArrayList<>(values);
+        List<List<String>> parts = new ArrayList<>();
+        for (int start = 0; start < all.size(); start += chunkSize) {
+            parts.add(all.subList(start, Math.min(start + chunkSize, all.size())));
+        }
+        return parts;
+    }
+    
+    private static class ResolvedTransfer {
+        private int index;
+        private Long fromAccountId;
+        private Long toAccountId;
+        private Money amount;
+        private String toIdentifier;
+        private boolean phoneNumber;
+        private String description;
+    }
+    
+    private static class AccountState {
+        private boolean active;
+        private Money balance;
+        private int balanceSlots;
+        private boolean swept;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.IdGeneratorNode;
+import com.example.bankingsystem.repository.IdGeneratorNodeRepository;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// The id generator only remembers its last timestamp in memory, so a node restarted with its clock set back
+// could issue ids it had already issued. This saves a timestamp a margin ahead of the newest id, which the
+// next run starts after; the margin covers the ids issued between the last save and a crash.
+@Component
+public class IdGeneratorCheckpoint {
+    
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    
+    @Autowired
+    private IdGeneratorNodeRepository idGeneratorNodeRepository;
+    
+    @Value("${banking.id.checkpoint-margin-ms:60000}")
+    private long marginMillis;
+    
+    private long reservedUntil = -1;
+    
+    // Written again once half the margin has been used, so a busy node saves about twice a margin
+    @Scheduled(fixedDelayString = "${banking.id.checkpoint-interval-ms:1000}")
+    public synchronized void save() {
+        long lastTimestamp = snowflakeIdGenerator.getLastTimestamp();
+        if (lastTimestamp + marginMillis / 2 <= reservedUntil) {
+            return;
+        }
+        long reserved = lastTimestamp + marginMillis;
+        idGeneratorNodeRepository.save(new IdGeneratorNode(snowflakeIdGenerator.getNodeId(), reserved));
+        reservedUntil = reserved;
+    }
+    
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+}
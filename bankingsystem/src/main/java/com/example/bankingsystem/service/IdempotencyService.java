@@ -0,0 +1,321 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.IdempotencyRecord;
+import com.example.bankingsystem.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs a money-moving request at most once per Idempotency-Key and replays its response afterwards.
+// The idempotency_keys table is the source of truth; recent responses are also kept in a small in-memory
+// cache, and duplicates arriving while the first request is still running wait for its result.
+// Only successful responses are stored: a failed attempt releases the key so the client can retry.
+// The response is stored in the same transaction as the money movement, so a node dying mid-request
+// leaves neither behind, only its claim, which another attempt may take over once the lease runs out.
+@Service
+public class IdempotencyService {
+    
+    public static final String HEADER = "Idempotency-Key";
+    
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    private static final StoredResponse BUSY = new StoredResponse("", 409, null, 0L);
+    
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requestTemplate;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, StoredResponse> recent;
+    private final long ttlMillis;
+    private final long waitTimeoutMillis;
+    
+    public IdempotencyService(PlatformTransactionManager transactionManager,
+                              @Value("${banking.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${banking.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${banking.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis) {
+        // Claims and results commit on their own, independent of the request's own transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // The services called by the request join this one, which also stores the response
+        this.requestTemplate = new TransactionTemplate(transactionManager);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+    
+    public ResponseEntity<?> execute(String idempotencyKey, String requestHash, Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return new ResponseEntity<>(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters",
+                HttpStatus.BAD_REQUEST);
+        }
+        
+        StoredResponse cached = getRecent(idempotencyKey);
+        if (cached != null) {
+            return cached.replay(requestHash);
+        }
+        
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(idempotencyKey, mine);
+        if (running != null) {
+            return awaitInFlight(idempotencyKey, requestHash, running, action);
+        }
+        
+        String claimToken = UUID.randomUUID().toString();
+        try {
+            StoredResponse stored = claimOrAwait(idempotencyKey, requestHash, claimToken);
+            if (stored == BUSY) {
+                mine.complete(null);
+                return stillProcessing();
+            }
+            if (stored != null) {
+                mine.complete(stored);
+                return stored.replay(requestHash);
+            }
+            
+            Attempt attempt;
+            try {
+                attempt = requestTemplate.execute(status -> {
+                    ResponseEntity<?> response = action.get();
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        // Whatever the failed request touched is undone along with it
+                        status.setRollbackOnly();
+                        return new Attempt(response, null);
+                    }
+                    StoredResponse completed = complete(idempotencyKey, requestHash, claimToken, response);
+                    if (completed == null) {
+                        status.setRollbackOnly();
+                    }
+                    return new Attempt(response, completed);
+                });
+            } catch (RuntimeException e) {
+                release(idempotencyKey, claimToken);
+                throw e;
+            }
+            
+            if (!attempt.response.getStatusCode().is2xxSuccessful()) {
+                release(idempotencyKey, claimToken);
+                mine.complete(null);
+                return attempt.response;
+            }
+            if (attempt.stored == null) {
+                // This attempt outlived its lease and another one took the key; the money movement was rolled back
+                mine.complete(null);
+                return stillProcessing();
+            }
+            putRecent(idempotencyKey, attempt.stored);
+            mine.complete(attempt.stored);
+            return attempt.response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, mine);
+        }
+    }
+    
+    public static String requestHash(Object... parts) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object part : parts) {
+            canonical.append(part).append('\u001f');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${banking.idempotency.cleanup-interval-ms:3600000}")
+    public void removeExpiredKeys() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.deleteCreatedBefore(cutoff));
+    }
+    
+    private ResponseEntity<?> awaitInFlight(String idempotencyKey, String requestHash,
+                                            CompletableFuture<StoredResponse> running,
+                                            Supplier<ResponseEntity<?>> action) {
+        StoredResponse stored;
+        try {
+            stored = running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return stillProcessing();
+        } catch (TimeoutException e) {
+            return stillProcessing();
+        } catch (ExecutionException e) {
+            stored = null;
+        }
+        // The first attempt failed and released the key, so this request gets its own turn
+        if (stored == null) {
+            return execute(idempotencyKey, requestHash, action);
+        }
+        return stored.replay(requestHash);
+    }
+    
+    // Returns null once this request owns the key, the stored response of an earlier request,
+    // or BUSY when another node is still working on it after the wait timeout.
+    // A claim is leased for the wait timeout; an expired one is taken over, which fences the old attempt.
+    private StoredResponse claimOrAwait(String idempotencyKey, String requestHash, String claimToken) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseExpiresAt = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    idempotencyRecordRepository.saveAndFlush(
+                        new IdempotencyRecord(idempotencyKey, requestHash, claimToken, leaseExpiresAt)));
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                // Another node holds or has completed this key
+            }
+            
+            Optional<IdempotencyRecord> record = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.findByIdempotencyKey(idempotencyKey));
+            if (record.isPresent() && record.get().getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                StoredResponse stored = StoredResponse.from(record.get(), ttlMillis);
+                putRecent(idempotencyKey, stored);
+                return stored;
+            }
+            if (record.isPresent()) {
+                int reclaimed = transactionTemplate.execute(status -> idempotencyRecordRepository.reclaimExpired(
+                    idempotencyKey, requestHash, claimToken, leaseExpiresAt, now));
+                if (reclaimed == 1) {
+                    return null;
+                }
+            }
+            if (record.isPresent() && System.currentTimeMillis() > deadline) {
+                return BUSY;
+            }
+            if (record.isPresent()) {
+                sleep();
+            }
+        }
+    }
+    
+    // Runs inside the request's transaction; returns null when the claim is no longer this attempt's
+    private StoredResponse complete(String idempotencyKey, String requestHash, String claimToken,
+                                    ResponseEntity<?> response) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not store response for " + HEADER + ": " + e.getMessage());
+        }
+        
+        int updated = idempotencyRecordRepository.complete(idempotencyKey, claimToken,
+            IdempotencyRecord.Status.COMPLETED, response.getStatusCode().value(), body, LocalDateTime.now());
+        if (updated == 0) {
+            return null;
+        }
+        return new StoredResponse(requestHash, response.getStatusCode().value(), body,
+            System.currentTimeMillis() + ttlMillis);
+    }
+    
+    private void release(String idempotencyKey, String claimToken) {
+        transactionTemplate.executeWithoutResult(status ->
+            idempotencyRecordRepository.deleteInProgress(idempotencyKey, claimToken));
+    }
+    
+    private synchronized StoredResponse getRecent(String idempotencyKey) {
+        StoredResponse stored = recent.get(idempotencyKey);
+        if (stored != null && stored.expiresAt < System.currentTimeMillis()) {
+            recent.remove(idempotencyKey);
+            return null;
+        }
+        return stored;
+    }
+    
+    private synchronized void putRecent(String idempotencyKey, StoredResponse stored) {
+        recent.put(idempotencyKey, stored);
+    }
+    
+    private ResponseEntity<?> stillProcessing() {
+        return new ResponseEntity<>("A request with this " + HEADER + " is still being processed", HttpStatus.CONFLICT);
+    }
+    
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + HEADER);
+        }
+    }
+    
+    private static class Attempt {
+        private final ResponseEntity<?> response;
+        private final StoredResponse stored;
+        
+        private Attempt(ResponseEntity<?> response, StoredResponse stored) {
+            this.response = response;
+            this.stored = stored;
+        }
+    }
+    
+    private static class StoredResponse {
+        private final String requestHash;
+        private final int status;
+        private final String body;
+        private final long expiresAt;
+        
+        private StoredResponse(String requestHash, int status, String body, long expiresAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+        
+        private static StoredResponse from(IdempotencyRecord record, long ttlMillis) {
+            return new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getResponseBody(),
+                System.currentTimeMillis() + ttlMillis);
+        }
+        
+        private ResponseEntity<?> replay(String requestHash) {
+            if (!this.requestHash.equals(requestHash)) {
+                return new ResponseEntity<>(HEADER + " was already used for a different request",
+                    HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+    }
+}
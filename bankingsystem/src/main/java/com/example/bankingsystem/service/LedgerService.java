@@ -0,0 +1,145 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.BalanceSnapshot;
+import com.example.bankingsystem.entity.LedgerEntry;
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.repository.AccountBalanceSlotRepository;
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.repository.BalanceSnapshotRepository;
+import com.example.bankingsystem.repository.LedgerEntryRepository;
+import com.example.bankingsystem.util.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Double-entry journal of every balance movement. Each movement is one DEBIT and one CREDIT row,
+// written in the same database transaction as the balance change and the Transaction row.
+// An account's ledger balance is its latest snapshot plus the entries written after it.
+@Service
+@Transactional
+public class LedgerService {
+    
+    private static final String INSERT_ENTRY_SQL =
+        "INSERT INTO ledger_entries (transaction_id, account_id, entry_type, amount, created_at) VALUES (?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    @Autowired
+    private AccountBalanceSlotRepository accountBalanceSlotRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // A null account is the bank's cash ledger: deposits are debited to it and withdrawals credited to it
+    public void recordMovement(Transaction transaction, Long debitAccountId, Long creditAccountId, Money amount) {
+        List<Object[]> rows = new ArrayList<>(2);
+        addMovement(rows, transaction, debitAccountId, creditAccountId, amount, Timestamp.valueOf(LocalDateTime.now()));
+        insert(rows);
+    }
+    
+    // Only completed transactions moved money; failed ones leave no entries
+    public void recordTransactions(List<Transaction> transactions) {
+        List<Object[]> rows = new ArrayList<>(transactions.size() * 2);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Transaction transaction : transactions) {
+            if (transaction.getStatus() != Transaction.TransactionStatus.COMPLETED) {
+                continue;
+            }
+            Long fromAccountId = transaction.getFromAccount() == null ? null : transaction.getFromAccount().getId();
+            Long toAccountId = transaction.getToAccount() == null ? null : transaction.getToAccount().getId();
+            addMovement(rows, transaction, fromAccountId, toAccountId, transaction.getAmount(), now);
+        }
+        insert(rows);
+    }
+    
+    public void recordTransaction(Transaction transaction) {
+        recordTransactions(List.of(transaction));
+    }
+    
+    @Transactional(readOnly = true)
+    public Money getLedgerBalance(Long accountId) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository.findFirstByAccountIdOrderByLastEntryIdDesc(accountId);
+        Money base = snapshot.isPresent() ? snapshot.get().getBalance() : Money.ZERO;
+        long afterEntryId = snapshot.isPresent() ? snapshot.get().getLastEntryId() : 0L;
+        return base.plus(Money.of(ledgerEntryRepository.sumNetAmountAfter(accountId, afterEntryId)));
+    }
+    
+    // Returns false when there was nothing new to fold into a snapshot
+    public boolean takeSnapshot(Long accountId) {
+        if (!lockAccountBalances(accountId).isPresent()) {
+            return false;
+        }
+        
+        Optional<BalanceSnapshot> latest = balanceSnapshotRepository.findFirstByAccountIdOrderByLastEntryIdDesc(accountId);
+        Money base = latest.isPresent() ? latest.get().getBalance() : Money.ZERO;
+        long afterEntryId = latest.isPresent() ? latest.get().getLastEntryId() : 0L;
+        
+        long lastEntryId = ledgerEntryRepository.findLastEntryIdAfter(accountId, afterEntryId);
+        if (lastEntryId == afterEntryId) {
+            return false;
+        }
+        Money balance = base.plus(Money.of(ledgerEntryRepository.sumNetAmountAfter(accountId, afterEntryId)));
+        balanceSnapshotRepository.save(new BalanceSnapshot(accountRepository.getReferenceById(accountId), balance, lastEntryId));
+        return true;
+    }
+    
+    // Accounts opened before the ledger existed have no opening entries. Whatever their stored balance
+    // holds beyond their entries becomes an opening snapshot at entry zero.
+    public boolean createOpeningSnapshot(Long accountId) {
+        Optional<Money> balance = lockAccountBalances(accountId);
+        if (!balance.isPresent() || balanceSnapshotRepository.existsByAccountId(accountId)) {
+            return false;
+        }
+        Money opening = balance.get().minus(Money.of(ledgerEntryRepository.sumNetAmountAfter(accountId, 0L)));
+        balanceSnapshotRepository.save(new BalanceSnapshot(accountRepository.getReferenceById(accountId), opening, 0L));
+        return true;
+    }
+    
+    // Every balance writer holds the account row or one of its slot rows until it commits, so once both are
+    // locked no entry for the account is in flight and any later entry gets a higher AUTO_INCREMENT id
+    private Optional<Money> lockAccountBalances(Long accountId) {
+        Optional<BigDecimal> rowBalance = accountRepository.findBalanceByIdForUpdate(accountId);
+        if (!rowBalance.isPresent()) {
+            return Optional.empty();
+        }
+        BigDecimal slotBalance = accountBalanceSlotRepository.sumBalancesForUpdate(accountId);
+        return Optional.of(Money.of(rowBalance.get()).plus(Money.of(slotBalance)));
+    }
+    
+    private void addMovement(List<Object[]> rows, Transaction transaction, Long debitAccountId,
+                             Long creditAccountId, Money amount, Timestamp now) {
+        Long transactionId = transaction == null ? null : transaction.getId();
+        BigDecimal value = amount.toBigDecimal();
+        rows.add(new Object[] {transactionId, debitAccountId, LedgerEntry.EntryType.DEBIT.name(), value, now});
+        rows.add(new Object[] {transactionId, creditAccountId, LedgerEntry.EntryType.CREDIT.name(), value, now});
+    }
+    
+    private void insert(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        // The entries reference transaction and account rows that may still be queued in the session
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, rows);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.repository.BalanceSnapshotRepository;
+import com.example.bankingsystem.repository.LedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Keeps ledger balance reads short by snapshotting accounts once enough entries have piled up
+// since their last snapshot. Every snapshot runs in its own short transaction.
+@Component
+public class LedgerSnapshotScheduler {
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    
+    @Value("${banking.ledger.snapshot-min-entries:100}")
+    private int snapshotMinEntries;
+    
+    // Only touched by the scheduler thread
+    private final Map<Long, Long> pendingEntries = new HashMap<>();
+    private long lastScannedEntryId = 0;
+    private boolean started = false;
+    
+    @Scheduled(fixedDelayString = "${banking.ledger.snapshot-interval-ms:60000}")
+    public void snapshotBusyAccounts() {
+        if (!started) {
+            for (Long accountId : balanceSnapshotRepository.findAccountIdsWithoutSnapshot()) {
+                ledgerService.createOpeningSnapshot(accountId);
+            }
+            // Counting resumes after the newest entry any snapshot covers instead of rescanning the ledger.
+            // Entries an account had before that point are not counted, which only delays its next snapshot.
+            lastScannedEntryId = balanceSnapshotRepository.findLastCoveredEntryId();
+            started = true;
+        }
+        
+        long upToEntryId = ledgerEntryRepository.findLastEntryId();
+        if (upToEntryId > lastScannedEntryId) {
+            for (Object[] row : ledgerEntryRepository.countEntriesByAccountBetween(lastScannedEntryId, upToEntryId)) {
+                pendingEntries.merge(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), Long::sum);
+            }
+            lastScannedEntryId = upToEntryId;
+        }
+        
+        Iterator<Map.Entry<Long, Long>> pending = pendingEntries.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<Long, Long> entry = pending.next();
+            if (entry.getValue() < snapshotMinEntries) {
+                continue;
+            }
+            try {
+                ledgerService.takeSnapshot(entry.getKey());
+                pending.remove();
+            } catch (RuntimeException e) {
+                // Left pending, so the account is tried again on the next run
+                System.err.println("Ledger snapshot failed for account " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+}
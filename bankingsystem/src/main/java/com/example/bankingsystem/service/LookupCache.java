@@ -0,0 +1,46 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.util.NearCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Resolves the account numbers requests arrive with to row ids without a query on every request.
+// Only ids are cached, never balances or statuses: money always moves through conditional updates
+// that read the current row, so a stale entry can at worst name an account that is no longer active.
+// Phone numbers are not cached: they can move to another user on any node, and a stale entry would send
+// money to the previous owner.
+@Component
+public class LookupCache {
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    // Account numbers are never reassigned and accounts are closed rather than deleted, so nothing
+    // invalidates this one
+    private final NearCache<String, Long> accountIdsByNumber;
+    
+    public LookupCache(@Value("${banking.lookup-cache.max-size:100000}") int maxSize,
+                       @Value("${banking.lookup-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.accountIdsByNumber = new NearCache<>("accountIdsByNumber", maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+    
+    public Optional<Long> getAccountId(String accountNumber) {
+        return Optional.ofNullable(accountIdsByNumber.get(accountNumber,
+            number -> accountRepository.findIdByAccountNumber(number).orElse(null)));
+    }
+    
+    public List<Map<String, Object>> stats() {
+        return List.of(accountIdsByNumber.stats());
+    }
+    
+    public void clear() {
+        accountIdsByNumber.invalidateAll();
+    }
+}
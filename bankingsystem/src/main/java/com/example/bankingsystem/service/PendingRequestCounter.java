@@ -0,0 +1,135 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.AccountRequest;
+import com.example.bankingsystem.repository.AccountRequestRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The number of pending account requests, kept in memory so the staff dashboard is pushed changes instead of
+// polling a COUNT query. Loaded from the database at startup and moved by every status transition once its
+// transaction commits. Transitions made on other nodes are only seen by the periodic resync. The count is for
+// display only; the per-user limit on new requests is still checked in the database.
+@Component
+public class PendingRequestCounter {
+    
+    @Autowired
+    private AccountRequestRepository accountRequestRepository;
+    
+    private final LongAdder total = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    // Transitions hold the read lock, so they never block each other; a resync takes the write lock to replace
+    // the total only if no transition landed while its COUNT ran
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final long emitterTimeoutMillis;
+    private long lastPublished = -1;
+    
+    public PendingRequestCounter(
+            @Value("${banking.pending-requests.emitter-timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+    
+    @PostConstruct
+    public void load() {
+        resync();
+    }
+    
+    @Scheduled(initialDelayString = "${banking.pending-requests.resync-interval-ms:300000}",
+               fixedDelayString = "${banking.pending-requests.resync-interval-ms:300000}")
+    public void resync() {
+        long transitionsBefore = transitions.sum();
+        long count = accountRequestRepository.countAllPendingRequests();
+        lock.writeLock().lock();
+        try {
+            // A transition during the COUNT may or may not be in it; rather than guess, wait for the next resync.
+            // Only a transition committed before the COUNT but applied after this swap is still counted twice.
+            if (transitions.sum() == transitionsBefore) {
+                total.add(count - total.sum());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public long getPendingCount() {
+        return Math.max(0, total.sum());
+    }
+    
+    // previous is null for a new request; the count moves only if the transaction commits
+    public void onStatusChange(AccountRequest.RequestStatus previous, AccountRequest.RequestStatus current) {
+        long delta = (current == AccountRequest.RequestStatus.PENDING ? 1 : 0)
+            - (previous == AccountRequest.RequestStatus.PENDING ? 1 : 0);
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(delta);
+            }
+        });
+    }
+    
+    // Sends the current count right away and a "pending" event whenever it changes after that
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        subscribers.add(emitter);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        send(emitter, getPendingCount());
+        return emitter;
+    }
+    
+    // Changes are pushed at most once per interval, so a burst of requests costs each client one event
+    @Scheduled(fixedDelayString = "${banking.pending-requests.push-interval-ms:1000}")
+    public void publish() {
+        long count = getPendingCount();
+        if (count == lastPublished) {
+            return;
+        }
+        lastPublished = count;
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, count);
+        }
+    }
+    
+    private void apply(long delta) {
+        lock.readLock().lock();
+        try {
+            total.add(delta);
+            transitions.increment();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void send(SseEmitter emitter, long count) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("pendingCount", count);
+        try {
+            emitter.send(SseEmitter.event().name("pending").data(event));
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away or the emitter timed out
+            subscribers.remove(emitter);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.TransactionView;
+import com.example.bankingsystem.entity.Account;
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Writes transactions straight from a streaming result set to the response. Rows are read as projections
+// and dropped once written, so memory use does not depend on how many transactions the export covers.
+@Service
+@Transactional(readOnly = true)
+public class TransactionExportService {
+    
+    public enum Format {
+        CSV, NDJSON
+    }
+    
+    private static final String CSV_HEADER =
+        "id,transactionId,type,status,amount,transactionDate,fromAccountNumber,toAccountNumber," +
+        "recipientPhone,recipientAccountNumber,description";
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private AccountRepository accountRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Called from the thread that writes the response body, so the read transaction spans the whole stream
+    public long export(String accountNumber, LocalDateTime startDate, LocalDateTime endDate,
+                       Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        
+        long rows = 0;
+        try (Stream<TransactionView> transactions = openStream(accountNumber, startDate, endDate)) {
+            Iterator<TransactionView> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                TransactionView transaction = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsv(writer, transaction);
+                } else {
+                    writeJson(writer, transaction);
+                }
+                rows++;
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+    
+    private Stream<TransactionView> openStream(String accountNumber, LocalDateTime startDate, LocalDateTime endDate) {
+        if (accountNumber == null) {
+            return transactionRepository.streamTransactionsBetweenDates(startDate, endDate);
+        }
+        Optional<Account> account = accountRepository.findByAccountNumber(accountNumber);
+        if (!account.isPresent()) {
+            throw new RuntimeException("Account not found: " + accountNumber);
+        }
+        return transactionRepository.streamTransactionsByAccountBetweenDates(account.get().getId(), startDate, endDate);
+    }
+    
+    private void writeCsv(Writer writer, TransactionView transaction) throws IOException {
+        writer.write(String.valueOf(transaction.getId()));
+        writer.write(',');
+        writer.write(csv(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(transaction.getTransactionType().name());
+        writer.write(',');
+        writer.write(transaction.getStatus().name());
+        writer.write(',');
+        writer.write(transaction.getAmount().toString());
+        writer.write(',');
+        writer.write(transaction.getTransactionDate() == null ? "" : transaction.getTransactionDate().toString());
+        writer.write(',');
+        writer.write(csv(transaction.getFromAccountNumber()));
+        writer.write(',');
+        writer.write(csv(transaction.getToAccountNumber()));
+        writer.write(',');
+        writer.write(csv(transaction.getRecipientPhone()));
+        writer.write(',');
+        writer.write(csv(transaction.getRecipientAccountNumber()));
+        writer.write(',');
+        writer.write(csv(transaction.getDescription()));
+        writer.write('\n');
+    }
+    
+    private void writeJson(Writer writer, TransactionView transaction) throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", transaction.getId());
+        row.put("transactionId", transaction.getTransactionId());
+        row.put("type", transaction.getTransactionType());
+        row.put("status", transaction.getStatus());
+        row.put("amount", transaction.getAmount());
+        row.put("transactionDate", transaction.getTransactionDate());
+        row.put("fromAccountNumber", transaction.getFromAccountNumber());
+        row.put("toAccountNumber", transaction.getToAccountNumber());
+        row.put("recipientPhone", transaction.getRecipientPhone());
+        row.put("recipientAccountNumber", transaction.getRecipientAccountNumber());
+        row.put("description", transaction.getDescription());
+        writer.write(objectMapper.writeValueAsString(row));
+        writer.write('\n');
+    }
+    
+    // RFC 4180 quoting, only where a value needs it
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
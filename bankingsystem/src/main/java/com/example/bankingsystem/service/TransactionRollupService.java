@@ -0,0 +1,169 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.VolumeBucket;
+import com.example.bankingsystem.entity.Transaction;
+import com.example.bankingsystem.repository.TransactionRollupRepository;
+import com.example.bankingsystem.util.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Hourly transaction counts and amounts per type and status, kept up to date in the same database
+// transaction as the Transaction rows, so reports can sum a few buckets instead of scanning transactions.
+@Service
+@Transactional
+public class TransactionRollupService {
+    
+    public enum Granularity {
+        HOUR, DAY
+    }
+    
+    private static final String UPSERT_SQL =
+        "INSERT INTO transaction_rollups " +
+        "(bucket_start, transaction_type, status, slot_index, transaction_count, total_amount) " +
+        "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+        "transaction_count = transaction_count + VALUES(transaction_count), " +
+        "total_amount = total_amount + VALUES(total_amount)";
+    
+    // Rows are always upserted in this order, so two writers never wait on each other's rows in a cycle
+    private static final Comparator<BucketKey> KEY_ORDER = Comparator
+        .comparing((BucketKey key) -> key.bucketStart)
+        .thenComparing(key -> key.transactionType)
+        .thenComparing(key -> key.status);
+    
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.rollup.slots:8}")
+    private int slots;
+    
+    // Call after the transactions were saved, once their transaction dates are set
+    public void recordTransactions(List<Transaction> transactions) {
+        Map<BucketKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            add(deltas, transaction, transaction.getStatus(), 1);
+        }
+        upsert(deltas);
+    }
+    
+    public void recordTransaction(Transaction transaction) {
+        recordTransactions(List.of(transaction));
+    }
+    
+    // Moves a transaction from its previous status to its current one within its creation hour.
+    // The decrement may land on a different slot than the original increment; only the sums matter.
+    public void recordStatusChange(Transaction transaction, Transaction.TransactionStatus previousStatus) {
+        if (previousStatus == transaction.getStatus()) {
+            return;
+        }
+        Map<BucketKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        add(deltas, transaction, previousStatus, -1);
+        add(deltas, transaction, transaction.getStatus(), 1);
+        upsert(deltas);
+    }
+    
+    // Whole hours: the start is rounded down and the end up, so every bucket touching the range is included
+    @Transactional(readOnly = true)
+    public List<VolumeBucket> getVolume(LocalDateTime startDate, LocalDateTime endDate, Granularity granularity,
+                                        Transaction.TransactionType type, Transaction.TransactionStatus status) {
+        LocalDateTime start = hourOf(startDate);
+        LocalDateTime end = hourOf(endDate).isBefore(endDate) ? hourOf(endDate).plusHours(1) : endDate;
+        String typeName = type == null ? null : type.name();
+        String statusName = status == null ? null : status.name();
+        if (granularity == Granularity.DAY) {
+            return transactionRollupRepository.findDailyVolume(start, end, typeName, statusName);
+        }
+        return transactionRollupRepository.findHourlyVolume(start, end, typeName, statusName);
+    }
+    
+    // Rebuilds the buckets of each day in the range from the transactions table, one day per database
+    // transaction. Transactions written meanwhile are either counted by the rebuild or added after it commits.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int backfill(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!startDate.isBefore(endDate)) {
+            throw new RuntimeException("Start date must be before end date");
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int buckets = 0;
+        LocalDateTime dayEnd;
+        for (LocalDateTime day = startDate.truncatedTo(ChronoUnit.DAYS); day.isBefore(endDate); day = dayEnd) {
+            LocalDateTime dayStart = day;
+            dayEnd = day.plusDays(1);
+            LocalDateTime end = dayEnd;
+            buckets += transactionTemplate.execute(status -> {
+                transactionRollupRepository.deleteBucketsBetween(dayStart, end);
+                return transactionRollupRepository.insertBucketsFromTransactions(dayStart, end);
+            });
+        }
+        return buckets;
+    }
+    
+    private void add(Map<BucketKey, Delta> deltas, Transaction transaction,
+                     Transaction.TransactionStatus status, int sign) {
+        BucketKey key = new BucketKey(hourOf(transaction.getTransactionDate()), transaction.getTransactionType(), status);
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.count += sign;
+        delta.amount = sign > 0 ? delta.amount.plus(transaction.getAmount()) : delta.amount.minus(transaction.getAmount());
+    }
+    
+    private void upsert(Map<BucketKey, Delta> deltas) {
+        // One random slot per call keeps the sorted order within it
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        for (Map.Entry<BucketKey, Delta> entry : deltas.entrySet()) {
+            BucketKey key = entry.getKey();
+            Delta delta = entry.getValue();
+            if (delta.count == 0 && delta.amount.isZero()) {
+                continue;
+            }
+            rows.add(new Object[] {Timestamp.valueOf(key.bucketStart), key.transactionType.name(), key.status.name(),
+                slot, delta.count, delta.amount.toBigDecimal()});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+    
+    private static LocalDateTime hourOf(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(ChronoUnit.HOURS);
+    }
+    
+    private static class BucketKey {
+        private final LocalDateTime bucketStart;
+        private final Transaction.TransactionType transactionType;
+        private final Transaction.TransactionStatus status;
+        
+        private BucketKey(LocalDateTime bucketStart, Transaction.TransactionType transactionType,
+                          Transaction.TransactionStatus status) {
+            this.bucketStart = bucketStart;
+            this.transactionType = transactionType;
+            this.status = status;
+        }
+    }
+    
+    private static class Delta {
+        private long count;
+        private Money amount = Money.ZERO;
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.bankingsystem.service;
 
+import com.example.bankingsystem.dto.TransactionView;
 import com.example.bankingsystem.entity.Account;
 import com.example.bankingsystem.entity.Transaction;
 import com.example.bankingsystem.repository.AccountRepository;
 import com.example.bankingsystem.repository.TransactionRepository;
+import com.example.bankingsystem.util.AccountNumbers;
+import com.example.bankingsystem.util.HistoryCursor;
+import com.example.bankingsystem.util.Money;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,197 +29,358 @@ public class TransactionService {
     @Autowired
     private TransactionRepository transactionRepository;
     
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    
     @Autowired
     private AccountRepository accountRepository;
     
     @Autowired
-    private AccountService accountService;
+    private AccountLockManager accountLockManager;
+    
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private LookupCache lookupCache;
+    
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+    
+    @Autowired
+    private AccountActivityService accountActivityService;
     
     public Transaction transferMoney(String fromAccountNumber, String toIdentifier, 
-                                   BigDecimal amount, String description, boolean isPhoneNumber) {
+                                   Money amount, String description, boolean isPhoneNumber) {
+        Transaction transaction = prepareTransfer(fromAccountNumber, toIdentifier, amount, description, isPhoneNumber);
+        applyTransfer(transaction);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
         
-        // Get source account
-        Optional<Account> fromAccountOpt = accountRepository.findByAccountNumber(fromAccountNumber);
-        if (!fromAccountOpt.isPresent()) {
-            throw new RuntimeException("Source account not found: " + fromAccountNumber);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        ledgerService.recordTransaction(savedTransaction);
+        transactionRollupService.recordTransaction(savedTransaction);
+        accountActivityService.recordTransaction(savedTransaction);
+        return withAccounts(savedTransaction);
+    }
+    
+    // Validates and records the transfer without moving any money; a worker completes it later
+    public Transaction createPendingTransfer(String fromAccountNumber, String toIdentifier,
+                                             Money amount, String description, boolean isPhoneNumber) {
+        Transaction transaction = prepareTransfer(fromAccountNumber, toIdentifier, amount, description, isPhoneNumber);
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        transactionRollupService.recordTransaction(savedTransaction);
+        accountActivityService.recordTransaction(savedTransaction);
+        return withAccounts(savedTransaction);
+    }
+    
+    public Transaction executePendingTransfer(Long id) {
+        // The row lock keeps two workers, possibly on different nodes, from applying the same transfer twice
+        Optional<Transaction> transactionOpt = transactionRepository.findByIdForUpdate(id);
+        if (!transactionOpt.isPresent()) {
+            throw new RuntimeException("Transaction not found with id: " + id);
+        }
+        Transaction transaction = transactionOpt.get();
+        if (transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+            return transaction;
         }
         
-        Account fromAccount = fromAccountOpt.get();
-        if (fromAccount.getStatus() != Account.AccountStatus.ACTIVE) {
-            throw new RuntimeException("Source account is not active");
+        applyTransfer(transaction);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        ledgerService.recordTransaction(transaction);
+        transactionRollupService.recordStatusChange(transaction, Transaction.TransactionStatus.PENDING);
+        return transaction;
+    }
+    
+    // Runs in its own transaction after the failed attempt has rolled back
+    public Transaction failPendingTransfer(Long id, String reason) {
+        Optional<Transaction> transactionOpt = transactionRepository.findByIdForUpdate(id);
+        if (!transactionOpt.isPresent()) {
+            throw new RuntimeException("Transaction not found with id: " + id);
+        }
+        Transaction transaction = transactionOpt.get();
+        if (transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+            transaction.setStatus(Transaction.TransactionStatus.FAILED);
+            transaction.setDescription(transaction.getDescription() + " - Failed: " + reason);
+            transactionRollupService.recordStatusChange(transaction, Transaction.TransactionStatus.PENDING);
+        }
+        return transaction;
+    }
+    
+    private Transaction prepareTransfer(String fromAccountNumber, String toIdentifier,
+                                        Money amount, String description, boolean isPhoneNumber) {
+        if (!AccountNumbers.isWellFormed(fromAccountNumber)) {
+            throw new RuntimeException("Invalid source account number: " + fromAccountNumber);
+        }
+        if (!isPhoneNumber && !AccountNumbers.isWellFormed(toIdentifier)) {
+            throw new RuntimeException("Invalid destination account number: " + toIdentifier);
         }
         
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient balance in source account");
+        // Only the ids are needed; balances are changed in place by conditional updates
+        Optional<Long> fromAccountIdOpt = lookupCache.getAccountId(fromAccountNumber);
+        if (!fromAccountIdOpt.isPresent()) {
+            throw new RuntimeException("Source account not found: " + fromAccountNumber);
         }
+        Long fromAccountId = fromAccountIdOpt.get();
         
-        // Get destination account
-        Account toAccount = null;
+        Long toAccountId;
         if (isPhoneNumber) {
-            List<Account> accounts = accountRepository.findActiveAccountsByUserPhoneNumber(toIdentifier);
-            if (accounts.isEmpty()) {
+            // Read on every transfer: the number may have moved to another user on any node
+            List<Long> accountIds = accountRepository.findActiveAccountIdsByPhoneNumber(toIdentifier);
+            if (accountIds.isEmpty()) {
                 throw new RuntimeException("No active account found for phone number: " + toIdentifier);
             }
             // Use the first active account if multiple accounts exist
-            toAccount = accounts.get(0);
+            toAccountId = accountIds.get(0);
         } else {
-            Optional<Account> toAccountOpt = accountRepository.findByAccountNumber(toIdentifier);
-            if (!toAccountOpt.isPresent()) {
+            Optional<Long> toAccountIdOpt = lookupCache.getAccountId(toIdentifier);
+            if (!toAccountIdOpt.isPresent()) {
                 throw new RuntimeException("Destination account not found: " + toIdentifier);
             }
-            toAccount = toAccountOpt.get();
-        }
-        
-        if (toAccount.getStatus() != Account.AccountStatus.ACTIVE) {
-            throw new RuntimeException("Destination account is not active");
+            toAccountId = toAccountIdOpt.get();
         }
         
-        if (fromAccount.getId().equals(toAccount.getId())) {
+        if (fromAccountId.equals(toAccountId)) {
             throw new RuntimeException("Cannot transfer money to the same account");
         }
         
-        // Create transaction record
         Transaction transaction = new Transaction();
+        transaction.setTransactionId(snowflakeIdGenerator.nextId(Transaction.TRANSACTION_ID_PREFIX));
         transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
         transaction.setAmount(amount);
-        transaction.setFromAccount(fromAccount);
-        transaction.setToAccount(toAccount);
+        transaction.setFromAccount(accountRepository.getReferenceById(fromAccountId));
+        transaction.setToAccount(accountRepository.getReferenceById(toAccountId));
         transaction.setDescription(description);
-        transaction.setStatus(Transaction.TransactionStatus.PENDING);
         
         if (isPhoneNumber) {
             transaction.setRecipientPhone(toIdentifier);
         } else {
             transaction.setRecipientAccountNumber(toIdentifier);
         }
+        return transaction;
+    }
+    
+    private void applyTransfer(Transaction transaction) {
+        Long fromAccountId = transaction.getFromAccount().getId();
+        Long toAccountId = transaction.getToAccount().getId();
+        Money amount = transaction.getAmount();
         
-        try {
-            // Perform the transfer
-            accountService.withdrawMoney(fromAccountNumber, amount);
-            accountService.depositMoney(toAccount.getAccountNumber(), amount);
-            
-            // Mark transaction as completed
-            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
-            
-        } catch (Exception e) {
-            transaction.setStatus(Transaction.TransactionStatus.FAILED);
-            transaction.setDescription(transaction.getDescription() + " - Failed: " + e.getMessage());
+        LocalDateTime now = LocalDateTime.now();
+        int toBalanceSlots = accountBalanceService.getBalanceSlots(toAccountId);
+        if (toBalanceSlots > 0) {
+            // The credit lands on a slot row of the destination, so only the source account is locked
+            accountLockManager.lockForTransaction(fromAccountId);
+            debitSourceAccount(fromAccountId, amount, now);
+            creditDestinationAccount(toAccountId, toBalanceSlots, amount, now);
+        } else {
+            // Hot accounts queue up in memory first; the updates below then take the row locks in id order
+            accountLockManager.lockForTransaction(fromAccountId, toAccountId);
+            if (fromAccountId < toAccountId) {
+                debitSourceAccount(fromAccountId, amount, now);
+                creditDestinationAccount(toAccountId, 0, amount, now);
+            } else {
+                creditDestinationAccount(toAccountId, 0, amount, now);
+                debitSourceAccount(fromAccountId, amount, now);
+            }
         }
-        
-        return transactionRepository.save(transaction);
     }
     
-    public Transaction createDeposit(String accountNumber, BigDecimal amount, String description) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (!accountOpt.isPresent()) {
+    public Transaction createDeposit(String accountNumber, Money amount, String description) {
+        if (!AccountNumbers.isWellFormed(accountNumber)) {
+            throw new RuntimeException("Invalid account number: " + accountNumber);
+        }
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (!accountIdOpt.isPresent()) {
             throw new RuntimeException("Account not found: " + accountNumber);
         }
-        
-        Account account = accountOpt.get();
+        Long accountId = accountIdOpt.get();
         
         Transaction transaction = new Transaction();
+        transaction.setTransactionId(snowflakeIdGenerator.nextId(Transaction.TRANSACTION_ID_PREFIX));
         transaction.setTransactionType(Transaction.TransactionType.DEPOSIT);
         transaction.setAmount(amount);
-        transaction.setToAccount(account);
+        transaction.setToAccount(accountRepository.getReferenceById(accountId));
         transaction.setDescription(description);
-        transaction.setStatus(Transaction.TransactionStatus.PENDING);
         
-        try {
-            accountService.depositMoney(accountNumber, amount);
+        int balanceSlots = accountBalanceService.getBalanceSlots(accountId);
+        if (balanceSlots == 0) {
+            accountLockManager.lockForTransaction(accountId);
+        }
+        if (accountBalanceService.credit(accountId, balanceSlots, amount, LocalDateTime.now())) {
             transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
-        } catch (Exception e) {
+        } else {
             transaction.setStatus(Transaction.TransactionStatus.FAILED);
-            transaction.setDescription(transaction.getDescription() + " - Failed: " + e.getMessage());
+            transaction.setDescription(transaction.getDescription() + " - Failed: Account is not active");
         }
         
-        return transactionRepository.save(transaction);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        ledgerService.recordTransaction(savedTransaction);
+        transactionRollupService.recordTransaction(savedTransaction);
+        accountActivityService.recordTransaction(savedTransaction);
+        return withAccounts(savedTransaction);
     }
     
-    public Transaction createWithdrawal(String accountNumber, BigDecimal amount, String description) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (!accountOpt.isPresent()) {
+    public Transaction createWithdrawal(String accountNumber, Money amount, String description) {
+        if (!AccountNumbers.isWellFormed(accountNumber)) {
+            throw new RuntimeException("Invalid account number: " + accountNumber);
+        }
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (!accountIdOpt.isPresent()) {
             throw new RuntimeException("Account not found: " + accountNumber);
         }
-        
-        Account account = accountOpt.get();
+        Long accountId = accountIdOpt.get();
         
         Transaction transaction = new Transaction();
+        transaction.setTransactionId(snowflakeIdGenerator.nextId(Transaction.TRANSACTION_ID_PREFIX));
         transaction.setTransactionType(Transaction.TransactionType.WITHDRAWAL);
         transaction.setAmount(amount);
-        transaction.setFromAccount(account);
+        transaction.setFromAccount(accountRepository.getReferenceById(accountId));
         transaction.setDescription(description);
-        transaction.setStatus(Transaction.TransactionStatus.PENDING);
         
-        try {
-            accountService.withdrawMoney(accountNumber, amount);
+        accountLockManager.lockForTransaction(accountId);
+        if (accountBalanceService.debit(accountId, amount, LocalDateTime.now())) {
             transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
-        } catch (Exception e) {
+        } else {
+            String reason = isActive(accountId) ? "Insufficient balance" : "Account is not active";
             transaction.setStatus(Transaction.TransactionStatus.FAILED);
-            transaction.setDescription(transaction.getDescription() + " - Failed: " + e.getMessage());
+            transaction.setDescription(transaction.getDescription() + " - Failed: " + reason);
         }
         
-        return transactionRepository.save(transaction);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        ledgerService.recordTransaction(savedTransaction);
+        transactionRollupService.recordTransaction(savedTransaction);
+        accountActivityService.recordTransaction(savedTransaction);
+        return withAccounts(savedTransaction);
+    }
+    
+    // The accounts were set as references by id and are loaded only now, for the response: the session closes
+    // before serialization, and the rows read here already carry this transaction's balance change
+    private Transaction withAccounts(Transaction transaction) {
+        Hibernate.initialize(transaction.getFromAccount());
+        Hibernate.initialize(transaction.getToAccount());
+        return transaction;
     }
     
+    private void debitSourceAccount(Long accountId, Money amount, LocalDateTime now) {
+        // Zero rows means the account is inactive or cannot cover the amount
+        if (!accountBalanceService.debit(accountId, amount, now)) {
+            if (!isActive(accountId)) {
+                throw new RuntimeException("Source account is not active");
+            }
+            throw new RuntimeException("Insufficient balance in source account");
+        }
+    }
+    
+    private void creditDestinationAccount(Long accountId, int balanceSlots, Money amount, LocalDateTime now) {
+        if (!accountBalanceService.credit(accountId, balanceSlots, amount, now)) {
+            throw new RuntimeException("Destination account is not active");
+        }
+    }
+    
+    private boolean isActive(Long accountId) {
+        Optional<Account.AccountStatus> status = accountRepository.findStatusById(accountId);
+        return status.isPresent() && status.get() == Account.AccountStatus.ACTIVE;
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Transaction> getTransactionById(Long id) {
         return transactionRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public Optional<Transaction> getTransactionByTransactionId(String transactionId) {
         return transactionRepository.findByTransactionId(transactionId);
     }
     
-    public List<Transaction> getTransactionHistory(String accountNumber) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
-            return transactionRepository.findAllTransactionsByAccount(accountOpt.get());
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionHistory(String accountNumber) {
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (accountIdOpt.isPresent()) {
+            return transactionRepository.findAllTransactionsByAccount(accountIdOpt.get());
         }
         throw new RuntimeException("Account not found: " + accountNumber);
     }
     
-    public Page<Transaction> getTransactionHistory(String accountNumber, Pageable pageable) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
-            return transactionRepository.findAllTransactionsByAccount(accountOpt.get(), pageable);
+    @Transactional(readOnly = true)
+    public Page<TransactionView> getTransactionHistory(String accountNumber, Pageable pageable) {
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (accountIdOpt.isPresent()) {
+            Long accountId = accountIdOpt.get();
+            List<TransactionView> content = transactionRepository.findTransactionsByAccount(accountId,
+                pageable.getOffset(), pageable.getPageSize(), pageable.getOffset() + pageable.getPageSize());
+            return new PageImpl<>(content, pageable, accountActivityService.getTransactionCount(accountId));
         }
         throw new RuntimeException("Account not found: " + accountNumber);
     }
     
-    public List<Transaction> getTransactionHistoryByPhoneNumber(String phoneNumber) {
-        return transactionRepository.findTransactionsByUserPhoneNumber(phoneNumber);
+    // Returns up to limit transactions older than the cursor, newest first; a null cursor starts at the newest
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionHistory(String accountNumber, HistoryCursor cursor, int limit) {
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (!accountIdOpt.isPresent()) {
+            throw new RuntimeException("Account not found: " + accountNumber);
+        }
+        if (cursor == null) {
+            return transactionRepository.findFirstTransactionsByAccount(accountIdOpt.get(), limit);
+        }
+        return transactionRepository.findTransactionsByAccountBefore(
+            accountIdOpt.get(), cursor.getTransactionDate(), cursor.getId(), limit);
+    }
+    
+    // The account ids behind a phone number, then one query over the account indexes
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionHistoryByPhoneNumber(String phoneNumber) {
+        List<Long> accountIds = accountRepository.findIdsByPhoneNumber(phoneNumber);
+        if (accountIds.isEmpty()) {
+            return List.of();
+        }
+        return transactionRepository.findTransactionsByAccountIds(accountIds);
     }
     
-    public List<Transaction> getTransactionHistoryByDateRange(String accountNumber, 
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionHistoryByDateRange(String accountNumber, 
                                                             LocalDateTime startDate, 
                                                             LocalDateTime endDate) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (accountIdOpt.isPresent()) {
             return transactionRepository.findTransactionsByAccountAndDateRange(
-                accountOpt.get(), startDate, endDate);
+                accountIdOpt.get(), startDate, endDate);
         }
         throw new RuntimeException("Account not found: " + accountNumber);
     }
     
-    public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+    // Up to limit transactions with an id below beforeId (all ids when null), newest first
+    @Transactional(readOnly = true)
+    public List<TransactionView> listTransactions(Transaction.TransactionStatus status,
+                                                  Transaction.TransactionType type,
+                                                  LocalDateTime startDate, LocalDateTime endDate,
+                                                  Long beforeId, int limit) {
+        return transactionRepository.findViewsBefore(status, type, startDate, endDate, beforeId, PageRequest.of(0, limit));
     }
     
+    @Transactional(readOnly = true)
     public List<Transaction> getTransactionsByStatus(Transaction.TransactionStatus status) {
         return transactionRepository.findByStatus(status);
     }
     
+    @Transactional(readOnly = true)
     public List<Transaction> getTransactionsByType(Transaction.TransactionType type) {
         return transactionRepository.findByTransactionType(type);
     }
     
+    @Transactional(readOnly = true)
     public long getTransactionCountByAccount(String accountNumber) {
-        Optional<Account> accountOpt = accountRepository.findByAccountNumber(accountNumber);
-        if (accountOpt.isPresent()) {
-            return transactionRepository.countTransactionsByAccount(accountOpt.get());
+        Optional<Long> accountIdOpt = lookupCache.getAccountId(accountNumber);
+        if (accountIdOpt.isPresent()) {
+            return accountActivityService.getTransactionCount(accountIdOpt.get());
         }
         throw new RuntimeException("Account not found: " + accountNumber);
     }
     
+    @Transactional(readOnly = true)
     public List<Transaction> getCompletedTransactionsBetweenDates(LocalDateTime startDate, 
                                                                 LocalDateTime endDate) {
         return transactionRepository.findCompletedTransactionsBetweenDates(startDate, endDate);
@@ -0,0 +1,168 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.UserIdentifiers;
+import com.example.bankingsystem.repository.UserRepository;
+import com.example.bankingsystem.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Registration checks that email, phone and Aadhar numbers are unused, and the registration form asks the same
+// as the user types, so almost every lookup is for a value nobody has. One Bloom filter per identifier answers
+// those without a query; only values the filter has probably seen are looked up in MySQL.
+// Values are added before the inserting transaction commits, so a committed user is never missing; values from
+// other nodes arrive with the periodic sync, and the unique constraints still reject what slips through.
+@Component
+public class UserIdentifierFilter {
+    
+    public enum Identifier {
+        EMAIL, PHONE_NUMBER, AADHAR_NUMBER
+    }
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.user-filter.expected-users:1000000}")
+    private long expectedUsers;
+    
+    @Value("${banking.user-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    @Value("${banking.user-filter.sync-overlap-seconds:120}")
+    private long syncOverlapSeconds;
+    
+    private final Map<Identifier, BloomFilter> filters = new EnumMap<>(Identifier.class);
+    private final Map<Identifier, LongAdder> skippedQueries = new EnumMap<>(Identifier.class);
+    private final Map<Identifier, LongAdder> probableHits = new EnumMap<>(Identifier.class);
+    private final Map<Identifier, LongAdder> falsePositives = new EnumMap<>(Identifier.class);
+    
+    // Until the table has been loaded every lookup goes to the database
+    private volatile boolean ready;
+    private volatile LocalDateTime syncedUntil;
+    
+    // Created before any request is served, so no insert can miss its filter; sized with room for the table
+    // to double before the rate drifts above target
+    @PostConstruct
+    public void createFilters() {
+        long capacity = Math.max(expectedUsers, userRepository.count() * 2);
+        for (Identifier identifier : Identifier.values()) {
+            filters.put(identifier, new BloomFilter(capacity, falsePositiveRate));
+            skippedQueries.put(identifier, new LongAdder());
+            probableHits.put(identifier, new LongAdder());
+            falsePositives.put(identifier, new LongAdder());
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread.ofVirtual().name("user-identifier-filter").start(this::load);
+    }
+    
+    public void add(String email, String phoneNumber, String aadharNumber) {
+        put(Identifier.EMAIL, email);
+        put(Identifier.PHONE_NUMBER, phoneNumber);
+        put(Identifier.AADHAR_NUMBER, aadharNumber);
+    }
+    
+    public void put(Identifier identifier, String value) {
+        if (value != null) {
+            filters.get(identifier).put(normalize(value));
+        }
+    }
+    
+    // False without a query when the filter has never seen the value, otherwise whatever the lookup says
+    public boolean exists(Identifier identifier, String value, Predicate<String> lookup) {
+        if (ready && value != null && !filters.get(identifier).mightContain(normalize(value))) {
+            skippedQueries.get(identifier).increment();
+            return false;
+        }
+        boolean exists = lookup.test(value);
+        if (ready && value != null) {
+            probableHits.get(identifier).increment();
+            if (!exists) {
+                falsePositives.get(identifier).increment();
+            }
+        }
+        return exists;
+    }
+    
+    // Picks up users registered or changed on other nodes; the overlap covers transactions that set updatedAt
+    // before the previous sync but committed after it
+    @Scheduled(fixedDelayString = "${banking.user-filter.sync-interval-ms:30000}")
+    public void syncRecentChanges() {
+        LocalDateTime since = syncedUntil;
+        if (!ready || since == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<UserIdentifiers> changed = userRepository.findIdentifiersUpdatedSince(
+            since.minusSeconds(syncOverlapSeconds));
+        for (UserIdentifiers user : changed) {
+            add(user.getEmail(), user.getPhoneNumber(), user.getAadharNumber());
+        }
+        syncedUntil = now;
+    }
+    
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Identifier identifier : Identifier.values()) {
+            long skipped = skippedQueries.get(identifier).sum();
+            long hits = probableHits.get(identifier).sum();
+            long wrong = falsePositives.get(identifier).sum();
+            Map<String, Object> filterStats = new LinkedHashMap<>();
+            filterStats.put("identifier", identifier);
+            filterStats.put("ready", ready);
+            filterStats.putAll(filters.get(identifier).stats());
+            filterStats.put("skippedQueries", skipped);
+            filterStats.put("probableHits", hits);
+            filterStats.put("falsePositives", wrong);
+            // Share of absent values the filter failed to rule out
+            long absent = skipped + wrong;
+            filterStats.put("observedFalsePositiveRate", absent == 0 ? 0.0 : (double) wrong / absent);
+            stats.add(filterStats);
+        }
+        return stats;
+    }
+    
+    private void load() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserIdentifiers> users = userRepository.streamIdentifiers()) {
+                    users.forEach(user -> add(user.getEmail(), user.getPhoneNumber(), user.getAadharNumber()));
+                }
+            });
+            syncedUntil = startedAt;
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("Could not load the user identifier filters: " + e.getMessage());
+        }
+    }
+    
+    // MySQL compares these columns case-insensitively, so values differing only in case must share bits
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
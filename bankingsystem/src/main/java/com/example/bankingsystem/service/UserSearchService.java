@@ -0,0 +1,290 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.dto.UserView;
+import com.example.bankingsystem.entity.User;
+import com.example.bankingsystem.repository.UserRepository;
+import com.example.bankingsystem.util.TrigramIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Staff search over names, the local part of emails and phone numbers, answered from an in-memory trigram
+// index instead of a LIKE scan over the users table. The index is built once the application is up and kept
+// current as users are created, updated and deleted; until the first build finishes searches fall back to
+// the database. Index hits are only candidates, so each one is checked against the stored row.
+// Changes made on other nodes arrive with the periodic sync. Users deleted there stay in the index until the
+// next rebuild, but verification drops them from results.
+@Service
+public class UserSearchService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${banking.user-search.max-results:50}")
+    private int maxResults;
+    
+    @Value("${banking.user-search.compact-deleted-ratio:0.25}")
+    private double compactDeletedRatio;
+    
+    @Value("${banking.user-search.sync-overlap-seconds:120}")
+    private long syncOverlapSeconds;
+    
+    // Null until the first build completes
+    private volatile TrigramIndex index;
+    private volatile LocalDateTime syncedUntil;
+    
+    // Users changed while a build was streaming the table; re-read before the new index is swapped in
+    private final Set<Long> changedDuringBuild = ConcurrentHashMap.newKeySet();
+    private boolean building;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofVirtual().name("user-search-index").start(this::rebuild);
+    }
+    
+    // Every update leaves a dead document behind; once they make up a large share of the index it is rebuilt
+    @Scheduled(fixedDelayString = "${banking.user-search.compact-check-interval-ms:600000}")
+    public void compactIfNeeded() {
+        TrigramIndex current = index;
+        if (current != null && current.deletedRatio() > compactDeletedRatio) {
+            rebuild();
+        }
+    }
+    
+    // Re-indexes users changed on any node since the last sync; the overlap covers transactions that set
+    // updatedAt before the previous sync but committed after it
+    @Scheduled(fixedDelayString = "${banking.user-search.sync-interval-ms:30000}")
+    public void syncRecentChanges() {
+        LocalDateTime since = syncedUntil;
+        if (index == null || since == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<UserView> changedUsers = transactionTemplate.execute(
+            status -> userRepository.findViewsUpdatedSince(since.minusSeconds(syncOverlapSeconds)));
+        for (UserView user : changedUsers) {
+            TrigramIndex current = changed(user.getId());
+            add(current, user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+                user.getPhoneNumber());
+        }
+        syncedUntil = now;
+    }
+    
+    public void rebuild() {
+        synchronized (this) {
+            if (building) {
+                return;
+            }
+            building = true;
+            changedDuringBuild.clear();
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            TrigramIndex fresh = new TrigramIndex();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserView> users = userRepository.streamViews()) {
+                    users.forEach(user -> add(fresh, user.getId(), user.getFirstName(), user.getLastName(),
+                        user.getEmail(), user.getPhoneNumber()));
+                }
+            });
+            swapIn(fresh, transactionTemplate);
+            if (syncedUntil == null) {
+                syncedUntil = startedAt;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not build the user search index: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                building = false;
+            }
+        }
+    }
+    
+    // Called inside the transaction that saved the user; the index only sees it once that commits
+    public void indexUser(User user) {
+        Long id = user.getId();
+        String firstName = user.getFirstName();
+        String lastName = user.getLastName();
+        String email = user.getEmail();
+        String phoneNumber = user.getPhoneNumber();
+        afterCommit(() -> {
+            TrigramIndex current = changed(id);
+            if (current != null) {
+                add(current, id, firstName, lastName, email, phoneNumber);
+            }
+        });
+    }
+    
+    public void removeUser(Long id) {
+        afterCommit(() -> {
+            TrigramIndex current = changed(id);
+            if (current != null) {
+                current.remove(id);
+            }
+        });
+    }
+    
+    // Up to limit users matching every word of the query, users where the words start a name, email or
+    // phone number first, newest first after that
+    @Transactional(readOnly = true)
+    public List<UserView> search(String query, int limit) {
+        String[] words = query == null ? new String[0] : query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (words.length == 0 || words[0].isEmpty()) {
+            throw new RuntimeException("Search term is required");
+        }
+        int cappedLimit = Math.max(1, Math.min(limit, maxResults));
+        
+        TrigramIndex current = index;
+        if (current == null) {
+            return userRepository.findViewsByNameContaining(query.trim(), PageRequest.of(0, cappedLimit));
+        }
+        
+        // Extra candidates make up for the ones verification throws out
+        long[] ids = current.search(query, cappedLimit * 3);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        Map<Long, UserView> views = new HashMap<>();
+        for (UserView view : userRepository.findViewsByIdIn(idList)) {
+            views.put(view.getId(), view);
+        }
+        
+        List<UserView> results = new ArrayList<>();
+        for (Long id : idList) {
+            UserView view = views.get(id);
+            if (view != null && matches(view, words)) {
+                results.add(view);
+                if (results.size() == cappedLimit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+    
+    public Map<String, Object> stats() {
+        TrigramIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("users", current == null ? 0 : current.size());
+        stats.put("deletedRatio", current == null ? 0.0 : current.deletedRatio());
+        stats.put("memoryBytes", current == null ? 0L : current.memoryBytes());
+        return stats;
+    }
+    
+    // Users changed during the build may be missing from the fresh index or indexed with old values, so they
+    // are read again; the swap happens under the same lock that records changes, so none fall in between
+    private synchronized void swapIn(TrigramIndex fresh, TransactionTemplate transactionTemplate) {
+        if (!changedDuringBuild.isEmpty()) {
+            List<Long> changedIds = new ArrayList<>(changedDuringBuild);
+            List<UserView> changedUsers = transactionTemplate.execute(
+                status -> userRepository.findViewsByIdIn(changedIds));
+            // Users deleted during the build are not read back, so they are removed first
+            for (Long id : changedIds) {
+                fresh.remove(id);
+            }
+            for (UserView user : changedUsers) {
+                add(fresh, user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+                    user.getPhoneNumber());
+            }
+        }
+        index = fresh;
+    }
+    
+    private synchronized TrigramIndex changed(Long id) {
+        if (building) {
+            changedDuringBuild.add(id);
+        }
+        return index;
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private static void add(TrigramIndex index, Long id, String firstName, String lastName, String email,
+                            String phoneNumber) {
+        index.add(id, firstName, lastName, emailLocalPart(email), phoneNumber);
+    }
+    
+    // The domain is shared by most users and would match nearly every query made of its trigrams
+    private static String emailLocalPart(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.indexOf('@');
+        return at < 0 ? email : email.substring(0, at);
+    }
+    
+    // Words of three or more characters may appear anywhere in a field, shorter ones must start a word,
+    // which is all the index can promise for them
+    private static boolean matches(UserView user, String[] words) {
+        String[] fields = {user.getFirstName(), user.getLastName(), emailLocalPart(user.getEmail()),
+            user.getPhoneNumber()};
+        for (String word : words) {
+            boolean found = false;
+            for (String field : fields) {
+                if (field != null && fieldMatches(field.toLowerCase(Locale.ROOT), word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean fieldMatches(String field, String word) {
+        if (word.length() >= 3) {
+            return field.contains(word);
+        }
+        for (String fieldWord : field.split("\\s+")) {
+            if (fieldWord.startsWith(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
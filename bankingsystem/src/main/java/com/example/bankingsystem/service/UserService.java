@@ -1,8 +1,11 @@
 package com.example.bankingsystem.service;
 
+import com.example.bankingsystem.dto.UserView;
 import com.example.bankingsystem.entity.User;
 import com.example.bankingsystem.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,37 +20,60 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserSearchService userSearchService;
+    
+    @Autowired
+    private UserIdentifierFilter userIdentifierFilter;
+    
     public User createUser(User user) {
         validateUserData(user);
-        return userRepository.save(user);
+        User savedUser;
+        try {
+            // Flushed here so a duplicate the pre-check let through fails with a readable message
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Email, phone number or Aadhar number already exists");
+        }
+        userIdentifierFilter.add(savedUser.getEmail(), savedUser.getPhoneNumber(), savedUser.getAadharNumber());
+        userSearchService.indexUser(savedUser);
+        return savedUser;
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> getUserByPhoneNumber(String phoneNumber) {
         return userRepository.findByPhoneNumber(phoneNumber);
     }
     
+    @Transactional(readOnly = true)
     public Optional<User> getUserByAadharNumber(String aadharNumber) {
         return userRepository.findByAadharNumber(aadharNumber);
     }
     
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    // Up to limit users with an id below beforeId (all ids when null), newest first
+    @Transactional(readOnly = true)
+    public List<UserView> listUsers(User.UserRole role, Long beforeId, int limit) {
+        return userRepository.findViewsBefore(role, beforeId, PageRequest.of(0, limit));
     }
     
-    public List<User> getUsersByRole(User.UserRole role) {
-        return userRepository.findByRole(role);
+    @Transactional(readOnly = true)
+    public List<UserView> getUsersByRole(User.UserRole role) {
+        return userRepository.findViewsByRole(role);
     }
     
-    public List<User> getAllStaff() {
-        return userRepository.findAllStaff();
+    @Transactional(readOnly = true)
+    public List<UserView> getAllStaff() {
+        return userRepository.findAllStaffViews();
     }
     
     public User updateUser(Long id, User updatedUser) {
@@ -58,47 +84,55 @@ public class UserService {
             // Only allow updating phone number and email
             if (updatedUser.getPhoneNumber() != null && 
                 !updatedUser.getPhoneNumber().equals(existingUser.getPhoneNumber())) {
-                if (userRepository.existsByPhoneNumber(updatedUser.getPhoneNumber())) {
+                if (existsByPhoneNumber(updatedUser.getPhoneNumber())) {
                     throw new RuntimeException("Phone number already exists");
                 }
                 existingUser.setPhoneNumber(updatedUser.getPhoneNumber());
+                userIdentifierFilter.put(UserIdentifierFilter.Identifier.PHONE_NUMBER, updatedUser.getPhoneNumber());
             }
             
             if (updatedUser.getEmail() != null && 
                 !updatedUser.getEmail().equals(existingUser.getEmail())) {
-                if (userRepository.existsByEmail(updatedUser.getEmail())) {
+                if (existsByEmail(updatedUser.getEmail())) {
                     throw new RuntimeException("Email already exists");
                 }
                 existingUser.setEmail(updatedUser.getEmail());
+                userIdentifierFilter.put(UserIdentifierFilter.Identifier.EMAIL, updatedUser.getEmail());
             }
             
-            return userRepository.save(existingUser);
+            User savedUser = userRepository.save(existingUser);
+            userSearchService.indexUser(savedUser);
+            return savedUser;
         }
         throw new RuntimeException("User not found with id: " + id);
     }
     
     public void deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+        Optional<User> userOpt = userRepository.findById(id);
+        if (userOpt.isPresent()) {
+            userSearchService.removeUser(id);
+            userRepository.delete(userOpt.get());
         } else {
             throw new RuntimeException("User not found with id: " + id);
         }
     }
     
+    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
-        return userRepository.existsByEmail(email);
+        return userIdentifierFilter.exists(UserIdentifierFilter.Identifier.EMAIL, email,
+            userRepository::existsByEmail);
     }
     
+    @Transactional(readOnly = true)
     public boolean existsByPhoneNumber(String phoneNumber) {
-        return userRepository.existsByPhoneNumber(phoneNumber);
+        return userIdentifierFilter.exists(UserIdentifierFilter.Identifier.PHONE_NUMBER, phoneNumber,
+            userRepository::existsByPhoneNumber);
     }
     
+    @Transactional(readOnly = true)
     public boolean existsByAadharNumber(String aadharNumber) {
-        return userRepository.existsByAadharNumber(aadharNumber);
-    }
-    
-    public List<User> searchUsersByName(String name) {
-        return userRepository.findByNameContaining(name);
+        return userIdentifierFilter.exists(UserIdentifierFilter.Identifier.AADHAR_NUMBER, aadharNumber,
+            userRepository::existsByAadharNumber);
     }
     
     public User createTransferPin(Long userId, String pin) {
@@ -123,11 +157,13 @@ public class UserService {
         throw new RuntimeException("User not found with id: " + userId);
     }
     
+    @Transactional(readOnly = true)
     public boolean hasTransferPin(Long userId) {
         Optional<User> userOpt = userRepository.findById(userId);
         return userOpt.isPresent() && userOpt.get().getTransferPin() != null;
     }
     
+    @Transactional(readOnly = true)
     public boolean verifyTransferPin(Long userId, String pin) {
         Optional<User> userOpt = userRepository.findById(userId);
         if (userOpt.isPresent()) {
@@ -138,15 +174,15 @@ public class UserService {
     }
     
     private void validateUserData(User user) {
-        if (userRepository.existsByEmail(user.getEmail())) {
+        if (existsByEmail(user.getEmail())) {
             throw new RuntimeException("Email already exists: " + user.getEmail());
         }
         
-        if (userRepository.existsByPhoneNumber(user.getPhoneNumber())) {
+        if (existsByPhoneNumber(user.getPhoneNumber())) {
             throw new RuntimeException("Phone number already exists: " + user.getPhoneNumber());
         }
         
-        if (userRepository.existsByAadharNumber(user.getAadharNumber())) {
+        if (existsByAadharNumber(user.getAadharNumber())) {
             throw new RuntimeException("Aadhar number already exists: " + user.getAadharNumber());
         }
     }
@@ -0,0 +1,61 @@
+package com.example.bankingsystem.util;
+
+// Account numbers are an 11-digit sequence followed by a Luhn check digit.
+// Older accounts carry 10 random digits without a check digit and are still accepted as they are.
+public final class AccountNumbers {
+    
+    public static final long FIRST_SEQUENCE = 10_000_000_000L;
+    public static final long LAST_SEQUENCE = 99_999_999_999L;
+    
+    private static final int LENGTH = 12;
+    private static final int LEGACY_LENGTH = 10;
+    
+    private AccountNumbers() {}
+    
+    public static String fromSequence(long sequence) {
+        if (sequence < FIRST_SEQUENCE || sequence > LAST_SEQUENCE) {
+            throw new IllegalArgumentException("Account number sequence out of range: " + sequence);
+        }
+        String digits = Long.toString(sequence);
+        return digits + checkDigit(digits);
+    }
+    
+    // Cheap syntactic check, meant to run before any database lookup
+    public static boolean isWellFormed(String accountNumber) {
+        if (accountNumber == null || !isDigits(accountNumber)) {
+            return false;
+        }
+        if (accountNumber.length() == LEGACY_LENGTH) {
+            return true;
+        }
+        return accountNumber.length() == LENGTH
+            && checkDigit(accountNumber.substring(0, LENGTH - 1)) == accountNumber.charAt(LENGTH - 1);
+    }
+    
+    private static char checkDigit(String digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+    
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+}
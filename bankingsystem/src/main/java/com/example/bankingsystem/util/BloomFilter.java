@@ -0,0 +1,102 @@
+package com.example.bankingsystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Set membership with no false negatives: mightContain is false only for values never added, and true for
+// values that were added plus a small share of others. Sized up front for an expected number of values and a
+// target false-positive rate; adding more than expected raises the rate. Values cannot be removed.
+// Bits are set with compare-and-set, so adds and lookups from any thread need no lock.
+public class BloomFilter {
+    
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final LongAdder added = new LongAdder();
+    
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        if (expectedValues <= 0) {
+            throw new IllegalArgumentException("Expected values must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        // m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hash functions minimize the rate for n values
+        long optimalBits = (long) Math.ceil(
+            -expectedValues * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedValues * Math.log(2)));
+    }
+    
+    public void put(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        // Odd, so the step shares no factor of two with the table size, which is a multiple of 64
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            setBit(bit);
+        }
+        added.increment();
+    }
+    
+    public boolean mightContain(String value) {
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Rate expected for the number of values added so far, (1 - e^(-kn/m))^k; duplicates are counted
+    // as separate values, so this errs high
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashFunctions * added.sum() / bitCount), hashFunctions);
+    }
+    
+    public long memoryBytes() {
+        return bitCount / 8;
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("values", added.sum());
+        stats.put("bits", bitCount);
+        stats.put("hashFunctions", hashFunctions);
+        stats.put("memoryBytes", memoryBytes());
+        stats.put("expectedFalsePositiveRate", expectedFalsePositiveRate());
+        return stats;
+    }
+    
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current = bits.get(word);
+        while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+            current = bits.get(word);
+        }
+    }
+    
+    // FNV-1a over the characters with a seed, finished with the MurmurHash3 mixer so that nearby strings land
+    // on unrelated bits; two seeds give the two hashes all k bit positions are derived from
+    private static long hash(String value, long seed) {
+        long hash = seed ^ 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankingsystem.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a history listing ordered by (transactionDate DESC, id DESC): the last row of the page
+// already returned. Clients only see it as an opaque URL-safe token.
+public final class HistoryCursor {
+    
+    private static final char SEPARATOR = '|';
+    
+    private final LocalDateTime transactionDate;
+    private final long id;
+    
+    public HistoryCursor(LocalDateTime transactionDate, long id) {
+        this.transactionDate = transactionDate;
+        this.id = id;
+    }
+    
+    public static HistoryCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new HistoryCursor(LocalDateTime.parse(value.substring(0, separator)),
+                Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+    
+    public String encode() {
+        String value = transactionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public LocalDateTime getTransactionDate() {
+        return transactionDate;
+    }
+    
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bankingsystem.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Listing endpoints page newest first by id: a page is the rows with an id below the cursor, and the cursor
+// of the next page is the id of the last row returned. No offsets are skipped and no totals are counted.
+public final class KeysetPage {
+    
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+    
+    private KeysetPage() {}
+    
+    public static void checkSize(int size) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_SIZE);
+        }
+    }
+    
+    // rows holds up to size + 1 entries; the extra one only signals that another page follows
+    public static <T> Map<String, Object> of(List<T> rows, int size, Function<T, Long> idOf) {
+        Long nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = idOf.apply(rows.get(size - 1));
+        }
+        Map<String, Object> page = new HashMap<>();
+        page.put("content", rows);
+        page.put("size", rows.size());
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+    
+    // Writes every row as one JSON line, reading MAX_SIZE rows at a time; each page is a separate short query,
+    // so a slow client never holds a database cursor or connection open
+    public static <T> void writeAll(OutputStream out, ObjectMapper objectMapper,
+                                    Function<Long, List<T>> pageBefore, Function<T, Long> idOf) throws IOException {
+        Long cursor = null;
+        while (true) {
+            List<T> rows = pageBefore.apply(cursor);
+            for (T row : rows) {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            }
+            out.flush();
+            if (rows.size() < MAX_SIZE) {
+                return;
+            }
+            cursor = idOf.apply(rows.get(rows.size() - 1));
+        }
+    }
+}
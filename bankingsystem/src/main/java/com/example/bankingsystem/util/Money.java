@@ -0,0 +1,154 @@
+package com.example.bankingsystem.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// Rupee amounts held as a whole number of paise. Arithmetic is exact and fails loudly on overflow.
+// BigDecimal only appears at the edges: the DECIMAL(15,2) columns and the JSON numbers.
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+    
+    public static final Money ZERO = new Money(0);
+    
+    private static final int SCALE = 2;
+    
+    private final long paise;
+    
+    private Money(long paise) {
+        this.paise = paise;
+    }
+    
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+    
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return ofPaise(amount.movePointRight(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must fit in paise: " + amount.toPlainString());
+        }
+    }
+    
+    // Also used by Spring to bind request parameters
+    public static Money valueOf(String amount) {
+        if (amount == null || amount.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return of(new BigDecimal(amount.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+    }
+    
+    public long getPaise() {
+        return paise;
+    }
+    
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+    
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+    
+    public Money negate() {
+        return ofPaise(Math.negateExact(paise));
+    }
+    
+    public boolean isPositive() {
+        return paise > 0;
+    }
+    
+    public boolean isNegative() {
+        return paise < 0;
+    }
+    
+    public boolean isZero() {
+        return paise == 0;
+    }
+    
+    public boolean isLessThan(Money other) {
+        return paise < other.paise;
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(paise, SCALE);
+    }
+    
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).paise == paise;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+    
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+    
+    // Written as a plain JSON number with two decimals, the same shape the BigDecimal fields produced
+    public static class Serializer extends StdScalarSerializer<Money> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public Serializer() {
+            super(Money.class);
+        }
+        
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toBigDecimal());
+        }
+    }
+    
+    public static class Deserializer extends StdScalarDeserializer<Money> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public Deserializer() {
+            super(Money.class);
+        }
+        
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            try {
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return of(p.getDecimalValue());
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    return valueOf(p.getText());
+                }
+            } catch (IllegalArgumentException e) {
+                return (Money) ctxt.handleWeirdStringValue(Money.class, p.getText(), e.getMessage());
+            }
+            return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+        }
+    }
+}
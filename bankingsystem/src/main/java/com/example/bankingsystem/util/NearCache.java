@@ -0,0 +1,131 @@
+package com.example.bankingsystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Small in-process cache: least recently used entries are evicted beyond maxSize, and every entry expires
+// ttl after it was loaded, which bounds how stale a value can get when another node changed it.
+// Loaders returning null are not cached, so a key that does not exist yet is looked up again next time.
+public class NearCache<K, V> {
+    
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<K, Entry<V>> entries;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private long invalidations;
+    
+    public NearCache(String name, int maxSize, long ttl, TimeUnit unit) {
+        this(name, maxSize, ttl, unit, System::nanoTime);
+    }
+    
+    NearCache(String name, int maxSize, long ttl, TimeUnit unit, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > NearCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    // The loader runs outside the lock; two threads missing the same key may both load it, which is
+    // cheaper than making every other key wait on a slow query
+    public V get(K key, Function<K, V> loader) {
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            V value = getIfPresent(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+            invalidationsBeforeLoad = invalidations;
+        }
+        misses.increment();
+        V value = loader.apply(key);
+        if (value != null) {
+            putUnlessInvalidated(key, value, invalidationsBeforeLoad);
+        }
+        return value;
+    }
+    
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        entries.remove(key);
+    }
+    
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+    
+    private V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.loadedAt >= ttlNanos) {
+            entries.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return entry.value;
+    }
+    
+    // A value loaded while any key was invalidated may predate that write, so it is dropped rather than cached
+    private synchronized void putUnlessInvalidated(K key, V value, long invalidationsBeforeLoad) {
+        if (invalidations == invalidationsBeforeLoad) {
+            entries.put(key, new Entry<>(value, nanoClock.getAsLong()));
+        }
+    }
+    
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+        
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bankingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64-bit ids: 41 bits of milliseconds since 2024-01-01, 10 bits of node id, 12 bits of sequence
+public class SnowflakeIdGenerator {
+    
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    
+    private final long nodeId;
+    
+    // Last issued (timestamp << SEQUENCE_BITS | sequence), advanced with CAS only
+    private final AtomicLong state = new AtomicLong();
+    
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+    }
+    
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long now = currentTimestamp();
+            
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // Same millisecond, or the clock moved backwards: stay on the last timestamp
+                next = last + 1;
+            } else {
+                // Sequence exhausted: borrow the next millisecond rather than wait for the clock
+                next = (lastTimestamp + 1) << SEQUENCE_BITS;
+            }
+            
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+    
+    public String nextId(String prefix) {
+        return prefix + nextId();
+    }
+    
+    public long getNodeId() {
+        return nodeId;
+    }
+    
+    // Timestamp of the newest id issued so far, in milliseconds since EPOCH
+    public long getLastTimestamp() {
+        return state.get() >>> SEQUENCE_BITS;
+    }
+    
+    // No id is issued at or before this timestamp from now on, whatever the clock says; a restarted node
+    // calls it with the checkpoint of the previous run so a clock set back cannot repeat that run's ids
+    public void advancePast(long timestamp) {
+        long floor = (timestamp << SEQUENCE_BITS) | SEQUENCE_MASK;
+        state.accumulateAndGet(floor, Math::max);
+    }
+    
+    protected long currentTimestamp() {
+        return System.currentTimeMillis() - EPOCH;
+    }
+}
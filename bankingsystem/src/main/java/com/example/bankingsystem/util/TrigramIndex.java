@@ -0,0 +1,315 @@
+package com.example.bankingsystem.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Substring index over a few short text fields per user. Each field is split into words, and every word
+// contributes its trigrams plus two padded ones marking where it starts, so one- and two-character queries
+// still match word prefixes. Every possible trigram has a slot in a flat table, and its postings are an int
+// array of document numbers in ascending order, so the index costs about four bytes per (word trigram, user).
+// Candidates may contain a query's trigrams without containing the query itself; callers verify them.
+public class TrigramIndex {
+
+    // Padding, a-z, 0-9, '@', '.', and one symbol shared by everything else
+    private static final int ALPHABET = 40;
+    private static final int PAD = 0;
+    private static final int OTHER = ALPHABET - 1;
+    private static final int TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+    private static final int[] EMPTY = new int[0];
+
+    private final int[][] postings = new int[TRIGRAMS][];
+    private final int[] postingSizes = new int[TRIGRAMS];
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Document number to user id; an updated user gets a new document and the old one is marked deleted
+    private long[] userIds = new long[1024];
+    // User id to its live document, so removing a user is one lookup
+    private final Map<Long, Integer> liveDocuments = new HashMap<>();
+    private long[] deleted = new long[16];
+    private int documents;
+    private int deletedDocuments;
+
+    // Replaces the user's document if it already has one
+    public void add(long userId, String... fields) {
+        int[] codes = documentTrigrams(fields);
+        lock.writeLock().lock();
+        try {
+            int document = documents++;
+            if (document == userIds.length) {
+                userIds = Arrays.copyOf(userIds, userIds.length * 2);
+            }
+            if (document / 64 == deleted.length) {
+                deleted = Arrays.copyOf(deleted, deleted.length * 2);
+            }
+            userIds[document] = userId;
+            markDeleted(liveDocuments.put(userId, document));
+            for (int code : codes) {
+                append(code, document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId) {
+        lock.writeLock().lock();
+        try {
+            markDeleted(liveDocuments.remove(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // User ids of documents containing every trigram of every query word, best first: documents where more
+    // query words start a word rank higher, newer documents before older ones within a rank
+    public long[] search(String query, int limit) {
+        String[] words = words(query);
+        if (words.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+
+        int[] required = new int[0];
+        int[] prefixCodes = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            int[] symbols = symbols(words[i]);
+            int[] wordCodes = symbols.length < 3 ? trigrams(padded(symbols)) : trigrams(symbols);
+            required = union(required, wordCodes);
+            // Short words only ever match at a word start, so every match earns the prefix rank
+            prefixCodes[i] = symbols.length < 3 ? -1 : code(PAD, symbols[0], symbols[1]);
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = intersect(required);
+
+            // One bucket per possible rank, each filled up to the limit while walking newest first
+            int[][] buckets = new int[words.length + 1][];
+            int[] bucketSizes = new int[words.length + 1];
+            for (int i = candidates.length - 1; i >= 0; i--) {
+                int document = candidates[i];
+                if (isDeleted(document)) {
+                    continue;
+                }
+                int rank = 0;
+                for (int prefixCode : prefixCodes) {
+                    if (prefixCode < 0 || contains(prefixCode, document)) {
+                        rank++;
+                    }
+                }
+                if (bucketSizes[rank] < limit) {
+                    if (buckets[rank] == null) {
+                        buckets[rank] = new int[limit];
+                    }
+                    buckets[rank][bucketSizes[rank]++] = document;
+                }
+                if (bucketSizes[words.length] == limit) {
+                    break;
+                }
+            }
+
+            long[] result = new long[limit];
+            int size = 0;
+            for (int rank = words.length; rank >= 0 && size < limit; rank--) {
+                for (int i = 0; i < bucketSizes[rank] && size < limit; i++) {
+                    result[size++] = userIds[buckets[rank][i]];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents - deletedDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return documents == 0 ? 0.0 : (double) deletedDocuments / documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Array payloads, plus about 64 bytes per entry of the live document map
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) TRIGRAMS * (8 + 4) + userIds.length * 8L + deleted.length * 8L
+                + liveDocuments.size() * 64L;
+            for (int[] posting : postings) {
+                if (posting != null) {
+                    bytes += posting.length * 4L;
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(int code, int document) {
+        int[] posting = postings[code];
+        int size = postingSizes[code];
+        if (posting == null) {
+            posting = new int[4];
+            postings[code] = posting;
+        } else if (size == posting.length) {
+            posting = Arrays.copyOf(posting, size + (size >> 1));
+            postings[code] = posting;
+        }
+        posting[size] = document;
+        postingSizes[code] = size + 1;
+    }
+
+    // Starts from the shortest posting list and keeps only documents found in all the others
+    private int[] intersect(int[] codes) {
+        int[] order = sortBySize(codes);
+        int[] first = postings[order[0]];
+        if (first == null) {
+            return EMPTY;
+        }
+        int[] candidates = Arrays.copyOf(first, postingSizes[order[0]]);
+        int size = candidates.length;
+        for (int i = 1; i < order.length && size > 0; i++) {
+            int code = order[i];
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < size; j++) {
+                int position = search(code, from, candidates[j]);
+                if (position >= 0) {
+                    candidates[kept++] = candidates[j];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    private boolean contains(int code, int document) {
+        return search(code, 0, document) >= 0;
+    }
+
+    private int search(int code, int from, int document) {
+        int[] posting = postings[code];
+        if (posting == null) {
+            return -1;
+        }
+        return Arrays.binarySearch(posting, from, postingSizes[code], document);
+    }
+
+    private int[] sortBySize(int[] codes) {
+        long[] keyed = new long[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            keyed[i] = ((long) postingSizes[codes[i]] << 32) | codes[i];
+        }
+        Arrays.sort(keyed);
+        int[] order = new int[codes.length];
+        for (int i = 0; i < keyed.length; i++) {
+            order[i] = (int) keyed[i];
+        }
+        return order;
+    }
+
+    private void markDeleted(Integer document) {
+        if (document != null) {
+            deleted[document / 64] |= 1L << (document % 64);
+            deletedDocuments++;
+        }
+    }
+
+    private boolean isDeleted(int document) {
+        return (deleted[document / 64] & (1L << (document % 64))) != 0;
+    }
+
+    private static int[] documentTrigrams(String[] fields) {
+        int[] codes = new int[0];
+        for (String field : fields) {
+            for (String word : words(field)) {
+                codes = union(codes, trigrams(padded(symbols(word))));
+            }
+        }
+        return codes;
+    }
+
+    private static String[] words(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return text.trim().split("\\s+");
+    }
+
+    private static int[] symbols(String word) {
+        int[] symbols = new int[word.length()];
+        for (int i = 0; i < word.length(); i++) {
+            symbols[i] = symbol(word.charAt(i));
+        }
+        return symbols;
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 1 + c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return 1 + c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 27 + c - '0';
+        }
+        if (c == '@') {
+            return 37;
+        }
+        if (c == '.') {
+            return 38;
+        }
+        return OTHER;
+    }
+
+    private static int[] padded(int[] symbols) {
+        int[] padded = new int[symbols.length + 2];
+        System.arraycopy(symbols, 0, padded, 2, symbols.length);
+        return padded;
+    }
+
+    private static int[] trigrams(int[] symbols) {
+        if (symbols.length < 3) {
+            return EMPTY;
+        }
+        int[] codes = new int[symbols.length - 2];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = code(symbols[i], symbols[i + 1], symbols[i + 2]);
+        }
+        return codes;
+    }
+
+    private static int code(int a, int b, int c) {
+        return (a * ALPHABET + b) * ALPHABET + c;
+    }
+
+    // Sorted and free of duplicates, so a document is appended to each posting list at most once
+    private static int[] union(int[] a, int[] b) {
+        int[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        Arrays.sort(all);
+        int size = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (size == 0 || all[size - 1] != all[i]) {
+                all[size++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, size);
+    }
+}
@@ -934,8 +934,8 @@ async function loadTransactionHistory() {
                 amountPrefix = '-₹';
             } else if (transaction.transactionType === 'TRANSFER') {
                 // Check if it's outgoing or incoming transfer
-                const fromAccountNumber = transaction.fromAccount ? transaction.fromAccount.accountNumber : null;
-                const toAccountNumber = transaction.toAccount ? transaction.toAccount.accountNumber : null;
+                const fromAccountNumber = transaction.fromAccountNumber;
+                const toAccountNumber = transaction.toAccountNumber;
                 
                 if (fromAccountNumber && userAccountNumbers.includes(fromAccountNumber)) {
                     // Outgoing transfer (user sent money)
@@ -1085,8 +1085,8 @@ async function rejectRequest(requestId) {
 
 async function loadAllUsers() {
     try {
-        const response = await fetch(`${API_BASE}/users`);
-        const users = await response.json();
+        const response = await fetch(`${API_BASE}/users?size=500`);
+        const users = (await response.json()).content;
         
         const usersContainer = document.getElementById('usersList');
         
@@ -1114,8 +1114,8 @@ async function loadAllUsers() {
 
 async function loadAllAccounts() {
     try {
-        const response = await fetch(`${API_BASE}/accounts`);
-        const accounts = await response.json();
+        const response = await fetch(`${API_BASE}/accounts?size=500`);
+        const accounts = (await response.json()).content;
         
         const accountsContainer = document.getElementById('allAccounts');
         
@@ -1125,7 +1125,7 @@ async function loadAllAccounts() {
             accountsHTML += `
                 <tr>
                     <td>${account.accountNumber}</td>
-                    <td>${account.user.firstName} ${account.user.lastName}</td>
+                    <td>${account.userFirstName} ${account.userLastName}</td>
                     <td>${account.accountType}</td>
                     <td>₹${account.balance.toLocaleString()}</td>
                     <td><span class="status-badge status-${account.status.toLowerCase()}">${account.status}</span></td>
@@ -1143,16 +1143,16 @@ async function loadAllAccounts() {
 
 async function loadAllTransactions() {
     try {
-        const response = await fetch(`${API_BASE}/transactions`);
-        const transactions = await response.json();
+        const response = await fetch(`${API_BASE}/transactions?size=500`);
+        const transactions = (await response.json()).content;
         
         const transactionsContainer = document.getElementById('allTransactions');
         
         let transactionsHTML = '<div class="table-container"><table class="table"><thead><tr><th>Transaction ID</th><th>Type</th><th>Amount</th><th>From</th><th>To</th><th>Status</th><th>Date</th></tr></thead><tbody>';
         
         transactions.forEach(transaction => {
-            const fromAccount = transaction.fromAccount ? transaction.fromAccount.accountNumber : '-';
-            const toAccount = transaction.toAccount ? transaction.toAccount.accountNumber : '-';
+            const fromAccount = transaction.fromAccountNumber || '-';
+            const toAccount = transaction.toAccountNumber || '-';
             
             transactionsHTML += `
                 <tr>
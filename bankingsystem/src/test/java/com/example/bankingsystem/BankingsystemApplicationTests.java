@@ -3,7 +3,7 @@ package com.example.bankingsystem;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "banking.id.node-id=0")
 class BankingsystemApplicationTests {
 
 	@Test
@@ -0,0 +1,106 @@
+package com.example.bankingsystem.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTests {
+    
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica0 = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(5000);
+    private final ReplicaRoutingDataSource routing =
+        new ReplicaRoutingDataSource(primary, List.of(replica0, replica1), readYourWrites);
+    
+    // Done by the container for the bean
+    @BeforeEach
+    void resolveTargets() {
+        routing.afterPropertiesSet();
+    }
+    
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+    
+    @Test
+    void readOnlyConnectionsAlternateBetweenReplicas() throws Exception {
+        Connection fromReplica0 = mock(Connection.class);
+        Connection fromReplica1 = mock(Connection.class);
+        Connection fromPrimary = mock(Connection.class);
+        when(replica0.getConnection()).thenReturn(fromReplica0);
+        when(replica1.getConnection()).thenReturn(fromReplica1);
+        when(primary.getConnection()).thenReturn(fromPrimary);
+        
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(routing);
+        
+        assertEquals(fromReplica0, physical(proxy, true));
+        assertEquals(fromReplica1, physical(proxy, true));
+        assertEquals(fromPrimary, physical(proxy, false));
+        assertEquals(fromReplica0, physical(proxy, true));
+    }
+    
+    @Test
+    void requestThatWroteReadsFromPrimaryAndGetsCookie() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+        
+        readYourWrites.afterCommit(transaction(false), null);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+        assertNotNull(response.getCookie(ReadYourWrites.COOKIE));
+    }
+    
+    @Test
+    void readOnlyCommitDoesNotPinToPrimary() {
+        RequestContextHolder.setRequestAttributes(
+            new ServletRequestAttributes(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        readYourWrites.afterCommit(transaction(true), null);
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+    }
+    
+    @Test
+    void cookieKeepsLaterRequestsOnPrimaryUntilItExpires() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() + 60000)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+        
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() - 1)));
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+    }
+    
+    private Connection physical(LazyConnectionDataSourceProxy proxy, boolean readOnly) throws Exception {
+        Connection connection = proxy.getConnection();
+        connection.setReadOnly(readOnly);
+        Connection target = ((ConnectionProxy) connection).getTargetConnection();
+        connection.close();
+        return target;
+    }
+    
+    private TransactionExecution transaction(boolean readOnly) {
+        TransactionExecution transaction = mock(TransactionExecution.class);
+        when(transaction.isNewTransaction()).thenReturn(true);
+        when(transaction.isReadOnly()).thenReturn(readOnly);
+        return transaction;
+    }
+}
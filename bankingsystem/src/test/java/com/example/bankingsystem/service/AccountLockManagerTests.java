@@ -0,0 +1,244 @@
+package com.example.bankingsystem.service;
+
+import com.example.bankingsystem.entity.Account;
+import com.example.bankingsystem.repository.AccountBalanceSlotRepository;
+import com.example.bankingsystem.repository.AccountRepository;
+import com.example.bankingsystem.repository.TransactionRepository;
+import com.example.bankingsystem.util.AccountNumbers;
+import com.example.bankingsystem.util.Money;
+import com.example.bankingsystem.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccountLockManagerTests {
+    
+    private static final int ACCOUNTS = 16;
+    private static final long INITIAL_BALANCE = 1_000_000L;
+    private static final int TRANSFERS_PER_RUN = 200_000;
+    private static final int SERVICE_TRANSFERS = 20_000;
+    private static final int[] THREAD_COUNTS = {1, 8, 32, 128};
+    
+    @Test
+    void concurrentTransfersLoseNoUpdates() throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            long[] balances = new long[ACCOUNTS];
+            Arrays.fill(balances, INITIAL_BALANCE);
+            AccountLockManager lockManager = new AccountLockManager(64, 10_000);
+            
+            runTransfers(lockManager, balances, threads);
+            
+            assertNoMoneyLost(balances);
+        }
+    }
+    
+    // Run with -Pbenchmark; the figures depend on the machine, so nothing is asserted about them
+    @Test
+    @Tag("benchmark")
+    void transfersPerSecondByThreadCount() throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            long[] balances = new long[ACCOUNTS];
+            Arrays.fill(balances, INITIAL_BALANCE);
+            AccountLockManager lockManager = new AccountLockManager(1024, 10_000);
+            
+            long started = System.nanoTime();
+            runTransfers(lockManager, balances, threads);
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            
+            System.out.printf("threads=%d transfers/sec=%.0f%n", threads, TRANSFERS_PER_RUN / seconds);
+        }
+    }
+    
+    // Goes through TransactionService.transferMoney and the conditional debit and credit statements.
+    // The stubbed statements read and write the balance in two steps, as a statement without row locks
+    // would, so only the account locks taken by the service keep concurrent transfers from losing one.
+    @Test
+    void transferMoneyLosesNoUpdates() throws Exception {
+        long[] balances = new long[ACCOUNTS];
+        Arrays.fill(balances, INITIAL_BALANCE);
+        TransactionService transactionService = transactionService(balances);
+        
+        AtomicLongArray expected = new AtomicLongArray(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            expected.set(i, INITIAL_BALANCE);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong remaining = new AtomicLong(SERVICE_TRANSFERS);
+        AtomicLong failed = new AtomicLong();
+        
+        for (int t = 0; t < 32; t++) {
+            executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    long amount = 1 + random.nextInt(100);
+                    
+                    TransactionSynchronizationManager.initSynchronization();
+                    try {
+                        transactionService.transferMoney(accountNumber(from), accountNumber(to),
+                            Money.ofPaise(amount), null, false);
+                        expected.addAndGet(from, -amount);
+                        expected.addAndGet(to, amount);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        // Stands in for the commit, which is what releases the account locks
+                        for (TransactionSynchronization synchronization :
+                                TransactionSynchronizationManager.getSynchronizations()) {
+                            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+                        }
+                        TransactionSynchronizationManager.clearSynchronization();
+                    }
+                }
+                return null;
+            });
+        }
+        
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        
+        // No balance can run short here, and a failure would leave the stub's half-applied transfer behind
+        assertEquals(0, failed.get());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(expected.get(i), balances[i], "lost update on account " + i);
+        }
+        assertNoMoneyLost(balances);
+    }
+    
+    private TransactionService transactionService(long[] balances) {
+        AccountLockManager lockManager = new AccountLockManager(1024, 10_000);
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        LookupCache lookupCache = mock(LookupCache.class);
+        
+        when(lookupCache.getAccountId(anyString())).thenAnswer(invocation ->
+            Optional.of(accountId(invocation.getArgument(0))));
+        when(accountRepository.getReferenceById(anyLong())).thenAnswer(invocation -> {
+            Account account = new Account();
+            account.setId(invocation.getArgument(0));
+            return account;
+        });
+        when(accountRepository.findStatusById(anyLong())).thenReturn(Optional.of(Account.AccountStatus.ACTIVE));
+        when(accountRepository.debitActiveAccount(anyLong(), any(), any())).thenAnswer(invocation -> {
+            int account = (int) (long) invocation.<Long>getArgument(0);
+            long amount = Money.of(invocation.<BigDecimal>getArgument(1)).getPaise();
+            long balance = balances[account];
+            if (balance < amount) {
+                return 0;
+            }
+            Thread.yield();
+            balances[account] = balance - amount;
+            return 1;
+        });
+        when(accountRepository.creditActiveAccount(anyLong(), any(), any())).thenAnswer(invocation -> {
+            int account = (int) (long) invocation.<Long>getArgument(0);
+            long amount = Money.of(invocation.<BigDecimal>getArgument(1)).getPaise();
+            long balance = balances[account];
+            Thread.yield();
+            balances[account] = balance + amount;
+            return 1;
+        });
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        AccountBalanceService accountBalanceService = new AccountBalanceService();
+        ReflectionTestUtils.setField(accountBalanceService, "accountRepository", accountRepository);
+        ReflectionTestUtils.setField(accountBalanceService, "accountBalanceSlotRepository",
+            mock(AccountBalanceSlotRepository.class));
+        ReflectionTestUtils.setField(accountBalanceService, "accountLockManager", lockManager);
+        
+        TransactionService transactionService = new TransactionService();
+        ReflectionTestUtils.setField(transactionService, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(transactionService, "snowflakeIdGenerator", new SnowflakeIdGenerator(0));
+        ReflectionTestUtils.setField(transactionService, "accountRepository", accountRepository);
+        ReflectionTestUtils.setField(transactionService, "accountLockManager", lockManager);
+        ReflectionTestUtils.setField(transactionService, "accountBalanceService", accountBalanceService);
+        ReflectionTestUtils.setField(transactionService, "ledgerService", mock(LedgerService.class));
+        ReflectionTestUtils.setField(transactionService, "lookupCache", lookupCache);
+        ReflectionTestUtils.setField(transactionService, "transactionRollupService",
+            mock(TransactionRollupService.class));
+        ReflectionTestUtils.setField(transactionService, "accountActivityService",
+            mock(AccountActivityService.class));
+        return transactionService;
+    }
+    
+    // Account ids are the array indexes
+    private static String accountNumber(int accountId) {
+        return AccountNumbers.fromSequence(AccountNumbers.FIRST_SEQUENCE + accountId);
+    }
+    
+    private static long accountId(String accountNumber) {
+        return Long.parseLong(accountNumber.substring(0, accountNumber.length() - 1)) - AccountNumbers.FIRST_SEQUENCE;
+    }
+    
+    private void assertNoMoneyLost(long[] balances) {
+        long total = 0;
+        for (long balance : balances) {
+            assertTrue(balance >= 0, "balance went negative");
+            total += balance;
+        }
+        assertEquals(ACCOUNTS * INITIAL_BALANCE, total);
+    }
+    
+    private void runTransfers(AccountLockManager lockManager, long[] balances, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong remaining = new AtomicLong(TRANSFERS_PER_RUN);
+        
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    long amount = 1 + random.nextInt(100);
+                    
+                    List<ReentrantLock> locks = lockManager.acquire((long) from, (long) to);
+                    try {
+                        // Deliberately non-atomic read-modify-write, exactly like the entity path
+                        long fromBalance = balances[from];
+                        if (fromBalance >= amount) {
+                            balances[from] = fromBalance - amount;
+                            balances[to] = balances[to] + amount;
+                        }
+                    } finally {
+                        lockManager.release(locks);
+                    }
+                }
+                return null;
+            });
+        }
+        
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+    }
+}
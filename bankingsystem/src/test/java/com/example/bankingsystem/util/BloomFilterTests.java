@@ -0,0 +1,47 @@
+package com.example.bankingsystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+    
+    @Test
+    void neverReportsAnAddedValueAsAbsent() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@example.com");
+        }
+        
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+    
+    @Test
+    void keepsFalsePositivesNearTheTargetRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put(String.valueOf(9_000_000_000L + i));
+        }
+        
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(String.valueOf(8_000_000_000L + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.002);
+    }
+    
+    @Test
+    void sizesBitsForTheTargetRate() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+        
+        // About 9.6 bits and 7 hash functions per value at 1%
+        assertEquals(7, filter.stats().get("hashFunctions"));
+        assertTrue(filter.memoryBytes() > 1_190_000 && filter.memoryBytes() < 1_210_000);
+    }
+}
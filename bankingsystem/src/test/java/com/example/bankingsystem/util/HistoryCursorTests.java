@@ -0,0 +1,29 @@
+package com.example.bankingsystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCursorTests {
+    
+    @Test
+    void roundTripsThroughOpaqueToken() {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_000);
+        String token = new HistoryCursor(date, 4_200_000_123L).encode();
+        
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        HistoryCursor decoded = HistoryCursor.decode(token);
+        assertEquals(date, decoded.getTransactionDate());
+        assertEquals(4_200_000_123L, decoded.getId());
+    }
+    
+    @Test
+    void rejectsTamperedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode("MjAyNC0wMy0wMQ"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankingsystem.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetPageTests {
+    
+    @Test
+    void extraRowBecomesNextCursor() {
+        Map<String, Object> page = KeysetPage.of(List.of(9L, 8L, 7L), 2, Function.identity());
+        assertEquals(List.of(9L, 8L), page.get("content"));
+        assertEquals(8L, page.get("nextCursor"));
+        
+        Map<String, Object> last = KeysetPage.of(List.of(7L), 2, Function.identity());
+        assertNull(last.get("nextCursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPage.checkSize(KeysetPage.MAX_SIZE + 1));
+    }
+    
+    @Test
+    void writesEveryRowAcrossPages() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, KeysetPage.MAX_SIZE * 2L + 3).boxed().toList().reversed();
+        List<Long> cursors = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        KeysetPage.writeAll(out, new ObjectMapper(), beforeId -> {
+            cursors.add(beforeId);
+            return ids.stream().filter(id -> beforeId == null || id < beforeId).limit(KeysetPage.MAX_SIZE).toList();
+        }, Function.identity());
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(ids.size(), lines.length);
+        assertEquals("1", lines[lines.length - 1]);
+        assertEquals(3, cursors.size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankingsystem.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTests {
+    
+    @Test
+    void convertsExactlyToAndFromDecimal() {
+        assertEquals(1050, Money.of(new BigDecimal("10.5")).getPaise());
+        assertEquals(new BigDecimal("10.50"), Money.ofPaise(1050).toBigDecimal());
+        assertEquals(Money.ofPaise(99), Money.valueOf("0.99"));
+        assertThrows(IllegalArgumentException.class, () -> Money.valueOf("0.001"));
+        assertThrows(IllegalArgumentException.class, () -> Money.valueOf("ten"));
+    }
+    
+    @Test
+    void arithmeticFailsOnOverflow() {
+        Money max = Money.ofPaise(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofPaise(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofPaise(Long.MIN_VALUE).negate());
+        assertEquals(Money.ZERO, Money.ofPaise(500).minus(Money.ofPaise(500)));
+        assertTrue(Money.ofPaise(1).isLessThan(Money.ofPaise(2)));
+    }
+    
+    @Test
+    void jsonShapeMatchesDecimal() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(new BigDecimal("10000.00")),
+            mapper.writeValueAsString(Money.valueOf("10000.00")));
+        assertEquals(Money.ofPaise(1234), mapper.readValue("12.34", Money.class));
+        assertEquals(Money.ofPaise(1234), mapper.readValue("\"12.34\"", Money.class));
+    }
+    
+    // Rough allocation comparison of the per-transfer balance arithmetic; not a substitute for JMH
+    @Test
+    void transferArithmeticAllocatesLessThanBigDecimal() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        int iterations = 1_000_000;
+        
+        BigDecimal decimalAmount = new BigDecimal("12.34");
+        BigDecimal decimalFrom = new BigDecimal("100000000.00");
+        BigDecimal decimalTo = BigDecimal.ZERO;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            if (decimalFrom.compareTo(decimalAmount) >= 0) {
+                decimalFrom = decimalFrom.subtract(decimalAmount);
+                decimalTo = decimalTo.add(decimalAmount);
+            }
+        }
+        long decimalBytes = threads.getThreadAllocatedBytes(threadId) - before;
+        
+        Money moneyAmount = Money.valueOf("12.34");
+        Money moneyFrom = Money.valueOf("100000000.00");
+        Money moneyTo = Money.ZERO;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            if (!moneyFrom.isLessThan(moneyAmount)) {
+                moneyFrom = moneyFrom.minus(moneyAmount);
+                moneyTo = moneyTo.plus(moneyAmount);
+            }
+        }
+        long moneyBytes = threads.getThreadAllocatedBytes(threadId) - before;
+        
+        assertEquals(decimalTo, moneyTo.toBigDecimal());
+        assertTrue(moneyBytes <= decimalBytes);
+    }
+}
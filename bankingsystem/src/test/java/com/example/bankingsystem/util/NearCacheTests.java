@@ -0,0 +1,68 @@
+package com.example.bankingsystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NearCacheTests {
+    
+    @Test
+    void countsHitsAndMissesAndSkipsNullValues() {
+        AtomicInteger loads = new AtomicInteger();
+        NearCache<String, Long> cache = new NearCache<>("test", 10, 1, TimeUnit.MINUTES);
+        
+        assertEquals(7L, cache.get("a", key -> { loads.incrementAndGet(); return 7L; }));
+        assertEquals(7L, cache.get("a", key -> { loads.incrementAndGet(); return 8L; }));
+        assertNull(cache.get("b", key -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.get("b", key -> { loads.incrementAndGet(); return null; }));
+        
+        assertEquals(3, loads.get());
+        Map<String, Object> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+        assertEquals(1, stats.get("size"));
+    }
+    
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxSize() {
+        NearCache<String, String> cache = new NearCache<>("test", 2, 1, TimeUnit.MINUTES);
+        cache.get("a", key -> "1");
+        cache.get("b", key -> "2");
+        cache.get("a", key -> "stale");
+        cache.get("c", key -> "3");
+        
+        assertEquals("1", cache.get("a", key -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", key -> "reloaded"));
+        assertEquals(2L, cache.stats().get("evictions"));
+    }
+    
+    @Test
+    void expiresEntriesAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        NearCache<String, String> cache = new NearCache<>("test", 10, 5, TimeUnit.SECONDS, now::get);
+        cache.get("a", key -> "1");
+        
+        now.set(TimeUnit.SECONDS.toNanos(4));
+        assertEquals("1", cache.get("a", key -> "2"));
+        now.set(TimeUnit.SECONDS.toNanos(5));
+        assertEquals("2", cache.get("a", key -> "2"));
+        assertEquals(1L, cache.stats().get("expirations"));
+    }
+    
+    @Test
+    void dropsValueLoadedAcrossAnInvalidation() {
+        NearCache<String, String> cache = new NearCache<>("test", 10, 1, TimeUnit.MINUTES);
+        assertEquals("old", cache.get("a", key -> {
+            cache.invalidate(key);
+            return "old";
+        }));
+        assertEquals("new", cache.get("a", key -> "new"));
+        assertEquals("new", cache.get("a", key -> "newer"));
+    }
+}
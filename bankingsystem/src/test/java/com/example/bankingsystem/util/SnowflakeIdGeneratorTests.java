@@ -0,0 +1,99 @@
+package com.example.bankingsystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTests {
+    
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        int threads = 16;
+        int idsPerThread = 250_000;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(threads * idsPerThread);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                long[] local = new long[idsPerThread];
+                for (int i = 0; i < idsPerThread; i++) {
+                    local[i] = generator.nextId();
+                }
+                for (long id : local) {
+                    ids.add(id);
+                }
+                return null;
+            });
+        }
+        
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+    
+    @Test
+    void idsKeepIncreasingWhenTheClockMovesBackwards() {
+        long[] clock = {1_000_000L};
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1) {
+            @Override
+            protected long currentTimestamp() {
+                return clock[0];
+            }
+        };
+        
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 1000 == 0) {
+                clock[0] -= 5;
+            }
+            long next = generator.nextId();
+            assertTrue(next > previous, "id went backwards after a clock regression");
+            previous = next;
+        }
+    }
+    
+    @Test
+    void idsStartAfterTheCheckpointOfThePreviousRun() {
+        long[] clock = {1_000_000L};
+        SnowflakeIdGenerator previousRun = new SnowflakeIdGenerator(1) {
+            @Override
+            protected long currentTimestamp() {
+                return clock[0];
+            }
+        };
+        long lastOfPreviousRun = previousRun.nextId();
+        
+        // Restarted with the clock a minute behind
+        clock[0] -= 60_000;
+        SnowflakeIdGenerator restarted = new SnowflakeIdGenerator(1) {
+            @Override
+            protected long currentTimestamp() {
+                return clock[0];
+            }
+        };
+        restarted.advancePast(previousRun.getLastTimestamp());
+        
+        assertTrue(restarted.nextId() > lastOfPreviousRun);
+        assertEquals(1_000_001L, restarted.getLastTimestamp());
+    }
+    
+    @Test
+    void prefixIsKept() {
+        String id = new SnowflakeIdGenerator(3).nextId("TXN");
+        assertTrue(id.startsWith("TXN"));
+        assertTrue(id.substring(3).chars().allMatch(Character::isDigit));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankingsystem.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TrigramIndexTests {
+    
+    @Test
+    void findsSubstringsAndShortPrefixes() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Alice Johnson", "alice", "9876543212");
+        index.add(2, "Bob Smith", "bob", "9876543213");
+        index.add(3, "Johnny Alison", "jalison", "9000000001");
+        
+        assertArrayEquals(new long[] {2}, index.search("mit", 10));
+        assertArrayEquals(new long[] {2}, index.search("543213", 10));
+        assertArrayEquals(new long[] {2}, index.search("b", 10));
+        assertArrayEquals(new long[0], index.search("xyz", 10));
+        // "ob" is inside "Bob" but starts no word
+        assertArrayEquals(new long[0], index.search("ob", 10));
+    }
+    
+    @Test
+    void ranksWordStartsFirstAndCapsResults() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Alice Johnson");
+        index.add(2, "Malison Brown");
+        index.add(3, "Alison Grey");
+        
+        assertArrayEquals(new long[] {3, 2}, index.search("alis", 10));
+        assertArrayEquals(new long[] {3}, index.search("alis", 1));
+        assertArrayEquals(new long[] {3, 1}, index.search("a", 10));
+        assertArrayEquals(new long[] {1}, index.search("ali john", 10));
+    }
+    
+    @Test
+    void removedUsersDisappearAndUpdatesReplaceThem() {
+        TrigramIndex index = new TrigramIndex();
+        for (long userId = 1; userId <= 2000; userId++) {
+            index.add(userId, "User" + userId, "user" + userId);
+        }
+        index.remove(7);
+        index.add(7, "Renamed Person", "renamed");
+        
+        assertFalse(Arrays.stream(index.search("user7", 2000)).anyMatch(userId -> userId == 7));
+        assertEquals(110, index.search("user7", 2000).length);
+        assertArrayEquals(new long[] {7}, index.search("renamed", 10));
+        assertEquals(2000, index.size());
+        assertEquals(1.0 / 2001, index.deletedRatio(), 1e-9);
+    }
+    
+    @Test
+    void addingAUserAgainReplacesItsDocument() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Alice Johnson");
+        index.add(1, "Alice Brown");
+        
+        assertArrayEquals(new long[0], index.search("johnson", 10));
+        assertArrayEquals(new long[] {1}, index.search("alice", 10));
+        assertEquals(1, index.size());
+        
+        index.remove(1);
+        assertArrayEquals(new long[0], index.search("alice", 10));
+        assertEquals(0, index.size());
+    }
+}